@@ -0,0 +1,304 @@
+package alg;
+
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+
+/**
+ * B+ Tree.
+ * Wide nodes keep keys in contiguous arrays, so a lookup touches about log_order(n) nodes
+ * instead of 2 * log2(n) nodes of {@link RBTree}. Values live in leaves only, leaves are
+ * linked with each other for ordered scans.
+ */
+public class BPlusTree<K, V> implements Tree<K, V> {
+
+    private static final int DEFAULT_ORDER = 64;
+
+    private final Comparator<K> comparator;
+    // max number of keys in node
+    private final int order;
+    private int size;
+
+    private Node root;
+    private Leaf first;
+
+    public BPlusTree(Comparator<K> comparator) {
+        this(comparator, DEFAULT_ORDER);
+    }
+
+    /**
+     * @param comparator keys comparator
+     * @param order max number of keys in node, at least 3.
+     */
+    public BPlusTree(Comparator<K> comparator, int order) {
+        if (order < 3) {
+            throw new IllegalArgumentException("order is less than 3: " + order);
+        }
+        this.comparator = comparator;
+        this.order = order;
+    }
+
+
+    private abstract static class Node {
+        // one extra slot to hold overflowed key before split
+        final Object[] keys;
+        int count;
+
+        Node(int order) {
+            keys = new Object[order + 1];
+        }
+    }
+
+    private static final class Leaf extends Node {
+        final Object[] values;
+        Leaf next;
+
+        Leaf(int order) {
+            super(order);
+            values = new Object[order + 1];
+        }
+    }
+
+    /*
+     * Child i holds keys in range [keys[i - 1], keys[i]).
+     */
+    private static final class Inner extends Node {
+        final Node[] children;
+
+        Inner(int order) {
+            super(order);
+            children = new Node[order + 2];
+        }
+    }
+
+    /*
+     * New right sibling of split node and the key which separates it from the node in parent.
+     */
+    private static final class Split {
+        final Object separator;
+        final Node right;
+
+        Split(Object separator, Node right) {
+            this.separator = separator;
+            this.right = right;
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void add(K key, V val) {
+        if (root == null) {
+            root = first = new Leaf(order);
+        }
+
+        Split split = insert(root, key, val);
+        if (split != null) {
+            Inner newRoot = new Inner(order);
+            newRoot.keys[0] = split.separator;
+            newRoot.children[0] = root;
+            newRoot.children[1] = split.right;
+            newRoot.count = 1;
+            root = newRoot;
+        }
+    }
+
+    @Override
+    public boolean contains(Object key) {
+        Leaf leaf = findLeaf(key);
+        return leaf != null && search(leaf, key) >= 0;
+    }
+
+    /**
+     * @return value associated with key or {@code null}.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        Leaf leaf = findLeaf(key);
+        if (leaf == null) {
+            return null;
+        }
+        int idx = search(leaf, key);
+        return idx >= 0 ? (V) leaf.values[idx] : null;
+    }
+
+    public Set<K> keysSet() {
+        return new AbstractSet<K>() {
+            @Override
+            public boolean contains(Object o) {
+                return BPlusTree.this.contains(o);
+            }
+
+            @Override
+            public Iterator<K> iterator() {
+                return new KeyIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /*
+     * Insert into subtree, return new right sibling with its separator if node was split.
+     */
+    private Split insert(Node node, K key, V val) {
+        if (node instanceof Leaf) {
+            return insertIntoLeaf((Leaf) node, key, val);
+        }
+
+        Inner inner = (Inner) node;
+        int idx = childIndex(inner, key);
+        Split split = insert(inner.children[idx], key, val);
+        if (split == null) {
+            return null;
+        }
+
+        System.arraycopy(inner.keys, idx, inner.keys, idx + 1, inner.count - idx);
+        System.arraycopy(inner.children, idx + 1, inner.children, idx + 2, inner.count - idx);
+        inner.keys[idx] = split.separator;
+        inner.children[idx + 1] = split.right;
+        inner.count++;
+
+        return inner.count > order ? splitInner(inner) : null;
+    }
+
+    private Split insertIntoLeaf(Leaf leaf, K key, V val) {
+        int idx = search(leaf, key);
+        if (idx >= 0) {
+            // Override value for already exists key.
+            leaf.values[idx] = val;
+            return null;
+        }
+
+        idx = -(idx + 1);
+        System.arraycopy(leaf.keys, idx, leaf.keys, idx + 1, leaf.count - idx);
+        System.arraycopy(leaf.values, idx, leaf.values, idx + 1, leaf.count - idx);
+        leaf.keys[idx] = key;
+        leaf.values[idx] = val;
+        leaf.count++;
+        size++;
+
+        return leaf.count > order ? splitLeaf(leaf) : null;
+    }
+
+    /*
+     * First key of the right leaf is copied up into parent.
+     */
+    private Split splitLeaf(Leaf leaf) {
+        int mid = leaf.count / 2;
+        Leaf right = new Leaf(order);
+        right.count = leaf.count - mid;
+        System.arraycopy(leaf.keys, mid, right.keys, 0, right.count);
+        System.arraycopy(leaf.values, mid, right.values, 0, right.count);
+        clear(leaf.keys, mid, leaf.count);
+        clear(leaf.values, mid, leaf.count);
+        leaf.count = mid;
+
+        right.next = leaf.next;
+        leaf.next = right;
+        return new Split(right.keys[0], right);
+    }
+
+    /*
+     * Middle key moves up into parent.
+     */
+    private Split splitInner(Inner inner) {
+        int mid = inner.count / 2;
+        Inner right = new Inner(order);
+        right.count = inner.count - mid - 1;
+        System.arraycopy(inner.keys, mid + 1, right.keys, 0, right.count);
+        System.arraycopy(inner.children, mid + 1, right.children, 0, right.count + 1);
+        Object separator = inner.keys[mid];
+        clear(inner.keys, mid, inner.count);
+        clear(inner.children, mid + 1, inner.count + 1);
+        inner.count = mid;
+        return new Split(separator, right);
+    }
+
+    private Leaf findLeaf(Object key) {
+        Node node = root;
+        while (node instanceof Inner) {
+            Inner inner = (Inner) node;
+            node = inner.children[childIndex(inner, key)];
+        }
+        return (Leaf) node;
+    }
+
+    private int childIndex(Inner inner, Object key) {
+        int idx = search(inner, key);
+        // key equal to separator belongs to right child
+        return idx >= 0 ? idx + 1 : -(idx + 1);
+    }
+
+    /*
+     * Binary search in node keys, same contract as Arrays#binarySearch.
+     */
+    @SuppressWarnings("unchecked")
+    private int search(Node node, Object key) {
+        int lo = 0, hi = node.count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int compare = comparator.compare((K) node.keys[mid], (K) key);
+            if (compare < 0) {
+                lo = mid + 1;
+            } else if (compare > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(lo + 1);
+    }
+
+    private static void clear(Object[] array, int from, int to) {
+        for (int i = from; i < to; i++) {
+            array[i] = null;
+        }
+    }
+
+
+    private class KeyIterator implements Iterator<K> {
+        private Leaf leaf = first;
+        private int idx;
+
+        private KeyIterator() {
+            skipEmpty();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return leaf != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public K next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            K key = (K) leaf.keys[idx++];
+            skipEmpty();
+            return key;
+        }
+
+        private void skipEmpty() {
+            while (leaf != null && idx == leaf.count) {
+                leaf = leaf.next;
+                idx = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,426 @@
+package alg;
+
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * Cache on top of {@link SCHashTable} bounded by number of entries or by their total weight.
+ * Table nodes are linked into access ordered queues, so eviction neither allocates nor searches.
+ * <ul>
+ * <li>{@link Eviction#LRU}: single queue, the least recently used entry is evicted.</li>
+ * <li>{@link Eviction#W_TINY_LFU}: new entries get into small LRU window, entries leaving the window
+ * compete with the least recently used entry of the main segmented LRU, and the one
+ * which was requested more often according to frequency sketch stays in the cache.
+ * So the cache is not flushed by a scan of keys which are never requested again.</li>
+ * </ul>
+ * Neither keys nor values can be {@code null}. Like the table, cache is not thread safe.
+ * <p>
+ * Entries of {@link #entrySet()} are immutable snapshots: value has to be replaced by {@link #add},
+ * which reweighs the entry, updates access order and can evict entries while the view is iterated.
+ */
+public class BoundedCache<K, V> extends SCHashTable<K, V> {
+
+    public enum Eviction {
+        LRU, W_TINY_LFU
+    }
+
+    // Share of maximum weight for the window of W-TinyLFU, percent.
+    private static final int WINDOW_PERCENT = 1;
+    // Share of main space for protected segment, percent.
+    private static final int PROTECTED_PERCENT = 80;
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private final long maximumWeight;
+    private final ToIntBiFunction<? super K, ? super V> weigher;
+    // maximum weight is not a number of entries, so the sketch grows with size
+    private final boolean weighted;
+
+    private final long windowMaximum;
+    private final long protectedMaximum;
+
+    // LRU keeps all entries in window queue, probation and protected are used by W-TinyLFU only
+    private final AccessQueue<K, V> window = new AccessQueue<>();
+    private final AccessQueue<K, V> probation = new AccessQueue<>();
+    private final AccessQueue<K, V> protectedQueue = new AccessQueue<>();
+    private final FrequencySketch sketch;
+
+    /**
+     * @param maximumSize maximum number of entries
+     * @param eviction eviction policy
+     */
+    public BoundedCache(long maximumSize, Eviction eviction) {
+        this(maximumSize, (k, v) -> 1, eviction, false);
+    }
+
+    /**
+     * @param maximumWeight maximum total weight of entries
+     * @param weigher weight of entry, it is computed when value is added
+     * @param eviction eviction policy
+     */
+    public BoundedCache(long maximumWeight, ToIntBiFunction<? super K, ? super V> weigher, Eviction eviction) {
+        this(maximumWeight, weigher, eviction, true);
+    }
+
+    private BoundedCache(long maximumWeight, ToIntBiFunction<? super K, ? super V> weigher, Eviction eviction,
+                         boolean weighted) {
+        if (maximumWeight < 0) {
+            throw new IllegalArgumentException("negative maximum weight: " + maximumWeight);
+        }
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+        this.weighted = weighted;
+        if (eviction == Eviction.W_TINY_LFU) {
+            windowMaximum = Math.max(1, maximumWeight * WINDOW_PERCENT / 100);
+            protectedMaximum = (maximumWeight - windowMaximum) * PROTECTED_PERCENT / 100;
+            // sketch is sized by number of entries, which is unknown for weighted cache until entries are added
+            sketch = new FrequencySketch(weighted ? 0 : maximumWeight);
+        } else {
+            windowMaximum = maximumWeight;
+            protectedMaximum = 0;
+            sketch = null;
+        }
+    }
+
+    static final class CacheNode<K, V> extends Node<K, V> {
+        CacheNode<K, V> before;
+        CacheNode<K, V> after;
+        int weight;
+        int queue;
+
+        CacheNode(K key, V val) {
+            super(key, val);
+        }
+
+        @Override
+        public V setValue(V value) {
+            // weight and access order are maintained by add, views give out snapshots instead of nodes
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Doubly linked queue of nodes, head is the least recently used one.
+     */
+    private static final class AccessQueue<K, V> {
+        CacheNode<K, V> head;
+        CacheNode<K, V> tail;
+        long weight;
+
+        void linkLast(CacheNode<K, V> node) {
+            node.before = tail;
+            node.after = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.after = node;
+            }
+            tail = node;
+            weight += node.weight;
+        }
+
+        void unlink(CacheNode<K, V> node) {
+            if (node.before == null) {
+                head = node.after;
+            } else {
+                node.before.after = node.after;
+            }
+            if (node.after == null) {
+                tail = node.before;
+            } else {
+                node.after.before = node.before;
+            }
+            node.before = node.after = null;
+            weight -= node.weight;
+        }
+
+        void moveToEnd(CacheNode<K, V> node) {
+            if (node != tail) {
+                unlink(node);
+                linkLast(node);
+            }
+        }
+    }
+
+    /**
+     * Total weight of cached entries.
+     */
+    public long weightedSize() {
+        return window.weight + probation.weight + protectedQueue.weight;
+    }
+
+    // number of counters per row of frequency sketch, 0 without sketch
+    int sketchWidth() {
+        return sketch != null ? sketch.table.length : 0;
+    }
+
+    /**
+     * @return cached value of key, or value computed by loader, which is cached then.
+     * If loader returns {@code null} nothing is cached.
+     */
+    public V getOrCompute(K key, Function<? super K, ? extends V> loader) {
+        V value = get(key);
+        if (value == null) {
+            value = loader.apply(key);
+            if (value != null) {
+                add(key, value);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public V add(K key, V val) {
+        if (val == null) {
+            throw new NullPointerException();
+        }
+        return super.add(key, val);
+    }
+
+    /**
+     * Entries are added one by one, so each of them passes admission and eviction.
+     * Buckets are not presized for the whole map, the cache keeps at most its maximum anyway.
+     */
+    @Override
+    public void addAll(Map<? extends K, ? extends V> map) {
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            add(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    Node<K, V> newNode(K key, V val) {
+        return new CacheNode<>(key, val);
+    }
+
+    @Override
+    Map.Entry<K, V> entryOf(Node<K, V> node) {
+        return new AbstractMap.SimpleImmutableEntry<>(node.key, node.value);
+    }
+
+    @Override
+    void afterNodeAccess(Node<K, V> node) {
+        CacheNode<K, V> cacheNode = (CacheNode<K, V>) node;
+        if (sketch != null) {
+            sketch.increment(node.key.hashCode());
+        }
+        onAccess(cacheNode);
+    }
+
+    @Override
+    void afterValueUpdate(Node<K, V> node) {
+        CacheNode<K, V> cacheNode = (CacheNode<K, V>) node;
+        int weight = weigh(cacheNode);
+        queueOf(cacheNode).weight += weight - cacheNode.weight;
+        cacheNode.weight = weight;
+        afterNodeAccess(node);
+        evict(sketch != null ? evictFromWindow() : null);
+    }
+
+    @Override
+    void afterNodeInsertion(Node<K, V> node) {
+        CacheNode<K, V> cacheNode = (CacheNode<K, V>) node;
+        cacheNode.weight = weigh(cacheNode);
+        cacheNode.queue = WINDOW;
+        window.linkLast(cacheNode);
+
+        CacheNode<K, V> candidate = null;
+        if (sketch != null) {
+            if (weighted) {
+                sketch.ensureCapacity(size());
+            }
+            sketch.increment(node.key.hashCode());
+            candidate = evictFromWindow();
+        }
+        evict(candidate);
+    }
+
+    @Override
+    void afterNodeRemoval(Node<K, V> node) {
+        CacheNode<K, V> cacheNode = (CacheNode<K, V>) node;
+        queueOf(cacheNode).unlink(cacheNode);
+    }
+
+    private void onAccess(CacheNode<K, V> node) {
+        switch (node.queue) {
+            case PROBATION:
+                // second hit, entry is promoted and protected segment gives its oldest entries back
+                probation.unlink(node);
+                node.queue = PROTECTED;
+                protectedQueue.linkLast(node);
+                while (protectedQueue.weight > protectedMaximum && protectedQueue.head != node) {
+                    CacheNode<K, V> demoted = protectedQueue.head;
+                    protectedQueue.unlink(demoted);
+                    demoted.queue = PROBATION;
+                    probation.linkLast(demoted);
+                }
+                break;
+            case PROTECTED:
+                protectedQueue.moveToEnd(node);
+                break;
+            default:
+                window.moveToEnd(node);
+        }
+    }
+
+    /*
+     * Move overflow of the window to the end of probation queue.
+     * Returns the first moved node: nodes from it to the end of probation are candidates for admission.
+     */
+    private CacheNode<K, V> evictFromWindow() {
+        CacheNode<K, V> first = null;
+        while (window.weight > windowMaximum) {
+            CacheNode<K, V> node = window.head;
+            window.unlink(node);
+            node.queue = PROBATION;
+            probation.linkLast(node);
+            if (first == null) {
+                first = node;
+            }
+        }
+        return first;
+    }
+
+    /*
+     * Remove entries until weight fits. Candidate competes with the head of probation (victim),
+     * the one with lower frequency is removed. Without candidates entries are removed in LRU order,
+     * probation first.
+     */
+    private void evict(CacheNode<K, V> candidate) {
+        while (weightedSize() > maximumWeight) {
+            CacheNode<K, V> victim = probation.head;
+            if (victim == null) {
+                victim = protectedQueue.head != null ? protectedQueue.head : window.head;
+            }
+
+            if (candidate != null && victim != candidate && victim.queue == PROBATION) {
+                int h1 = candidate.key.hashCode();
+                int h2 = victim.key.hashCode();
+                if (sketch.frequency(h1) > sketch.frequency(h2)) {
+                    remove(victim.key);
+                } else {
+                    CacheNode<K, V> next = candidate.after;
+                    remove(candidate.key);
+                    candidate = next;
+                }
+            } else {
+                if (victim == candidate) {
+                    candidate = candidate.after;
+                }
+                remove(victim.key);
+            }
+        }
+    }
+
+    private AccessQueue<K, V> queueOf(CacheNode<K, V> node) {
+        switch (node.queue) {
+            case PROBATION:
+                return probation;
+            case PROTECTED:
+                return protectedQueue;
+            default:
+                return window;
+        }
+    }
+
+    private int weigh(CacheNode<K, V> node) {
+        int weight = weigher.applyAsInt(node.key, node.value);
+        if (weight < 0) {
+            throw new IllegalArgumentException("negative weight of " + node.key + ": " + weight);
+        }
+        return weight;
+    }
+
+    /**
+     * Count-min sketch of 4-bit counters, estimates how often key was requested recently.
+     * Each long holds 16 counters, key takes counter from 4 rows at indexes given by different hash
+     * functions and its frequency is the minimum of them. When number of increments reaches sample size
+     * all counters are halved, so old popularity fades. Width follows the number of entries, growing
+     * the sketch starts counting from zero.
+     */
+    private static final class FrequencySketch {
+        private static final long[] SEEDS = {
+                0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+        private static final long RESET_MASK = 0x7777777777777777L;
+        private static final int MAX_WIDTH = 1 << 24;
+
+        private static final int MIN_WIDTH = 16;
+
+        private long[] table;
+        private int mask;
+        private int sampleSize;
+        private int additions;
+
+        FrequencySketch(long maximumSize) {
+            int width = MIN_WIDTH;
+            while (width < maximumSize && width < MAX_WIDTH) {
+                width <<= 1;
+            }
+            allocate(width);
+        }
+
+        /*
+         * Grow to at least given number of entries, at least doubling, so growth happens log(size) times.
+         */
+        void ensureCapacity(long size) {
+            int width = table.length;
+            if (size <= width || width >= MAX_WIDTH) {
+                return;
+            }
+            while (width < size && width < MAX_WIDTH) {
+                width <<= 1;
+            }
+            allocate(width);
+        }
+
+        private void allocate(int width) {
+            table = new long[width];
+            mask = width - 1;
+            sampleSize = 10 * width;
+            additions = 0;
+        }
+
+        int frequency(int hash) {
+            int start = (hash & 3) << 2;
+            int frequency = 15;
+            for (int i = 0; i < 4; i++) {
+                int offset = (start + i) << 2;
+                frequency = Math.min(frequency, (int) ((table[indexOf(hash, i)] >>> offset) & 0xf));
+            }
+            return frequency;
+        }
+
+        void increment(int hash) {
+            int start = (hash & 3) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                int idx = indexOf(hash, i);
+                int offset = (start + i) << 2;
+                if (((table[idx] >>> offset) & 0xf) != 0xf) {
+                    table[idx] += 1L << offset;
+                    added = true;
+                }
+            }
+            if (added && ++additions == sampleSize) {
+                reset();
+            }
+        }
+
+        private void reset() {
+            for (int i = 0; i < table.length; i++) {
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+            additions >>>= 1;
+        }
+
+        private int indexOf(int hash, int row) {
+            long h = (hash + SEEDS[row]) * SEEDS[row];
+            h += h >>> 32;
+            return (int) h & mask;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package alg;
+
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.locks.StampedLock;
+
+
+/**
+ * Thread safe Red black Tree.
+ * Writers are serialized by write lock and modify wrapped {@link RBTree}. Readers do not lock:
+ * they walk the nodes under optimistic stamp of {@link StampedLock} and retry if some write happened meanwhile,
+ * after few failed attempts reader falls back to read lock.
+ */
+public class ConcurrentRBTree<K, V> implements Tree<K, V> {
+
+    private static final int OPTIMISTIC_ATTEMPTS = 3;
+
+    /*
+     * Path in red black tree is at most 2 * log2(n + 1) nodes, so it is always shorter for int sized tree.
+     * Longer walk means nodes were observed in the middle of rotation.
+     */
+    private static final int MAX_PATH = 64;
+
+    private final StampedLock lock = new StampedLock();
+    private final Comparator<K> comparator;
+    private final RBTree<K, V> tree;
+
+    public ConcurrentRBTree(Comparator<K> comparator) {
+        this.comparator = comparator;
+        this.tree = new RBTree<>(comparator);
+    }
+
+    @Override
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int size = tree.size();
+        if (lock.validate(stamp)) {
+            return size;
+        }
+
+        stamp = lock.readLock();
+        try {
+            return tree.size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public void add(K key, V val) {
+        long stamp = lock.writeLock();
+        try {
+            tree.add(key, val);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean contains(Object key) {
+        for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp == 0) {
+                // write in progress
+                continue;
+            }
+            boolean found = findOptimistic(key);
+            if (lock.validate(stamp)) {
+                return found;
+            }
+        }
+
+        long stamp = lock.readLock();
+        try {
+            return tree.contains(key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Weakly consistent view of keys: iterator never fails because of concurrent writes,
+     * returns keys in ascending order and sees keys added before its creation.
+     */
+    public Set<K> keysSet() {
+        return new AbstractSet<K>() {
+            @Override
+            public boolean contains(Object o) {
+                return ConcurrentRBTree.this.contains(o);
+            }
+
+            @Override
+            public Iterator<K> iterator() {
+                return new KeyIterator();
+            }
+
+            @Override
+            public int size() {
+                return ConcurrentRBTree.this.size();
+            }
+        };
+    }
+
+    /*
+     * Result is meaningful only if stamp is still valid after the walk.
+     */
+    private boolean findOptimistic(Object key) {
+        RBTree.RBNode<K, V> node = tree.root;
+        for (int depth = 0; node != null && depth < MAX_PATH; depth++) {
+            @SuppressWarnings("unchecked")
+            int compare = comparator.compare((K) key, node.key);
+            if (compare == 0) {
+                return true;
+            }
+            node = compare > 0 ? node.right : node.left;
+        }
+        return false;
+    }
+
+    /*
+     * Node with the least key greater than given one, or the first node for null key.
+     * Caller holds read lock or validates stamp after the call.
+     */
+    private RBTree.RBNode<K, V> higherNode(K key) {
+        RBTree.RBNode<K, V> node = tree.root, higher = null;
+        for (int depth = 0; node != null && depth < MAX_PATH; depth++) {
+            if (key == null || comparator.compare(key, node.key) < 0) {
+                higher = node;
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return higher;
+    }
+
+    /*
+     * In-order successor walk, same as RBTree iterator does.
+     * Caller holds read lock or validates stamp after the call.
+     */
+    private static <K, V> RBTree.RBNode<K, V> successor(RBTree.RBNode<K, V> node) {
+        RBTree.RBNode<K, V> next = node.right;
+        if (next != null) {
+            for (int depth = 0; next.left != null && depth < MAX_PATH; depth++) {
+                next = next.left;
+            }
+            return next;
+        }
+
+        RBTree.RBNode<K, V> child = node;
+        next = node.parent;
+        for (int depth = 0; next != null && next.right == child && depth < MAX_PATH; depth++) {
+            child = next;
+            next = next.parent;
+        }
+        return next;
+    }
+
+    /*
+     * Every step locates the next node optimistically. If writer interferes, iterator
+     * seeks the least key greater than the last returned one from the root under read lock.
+     */
+    private final class KeyIterator implements Iterator<K> {
+        private RBTree.RBNode<K, V> next;
+
+        private KeyIterator() {
+            next = locateNext(null, null);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public K next() {
+            RBTree.RBNode<K, V> current = next;
+            if (current == null) {
+                throw new NoSuchElementException();
+            }
+            next = locateNext(current, current.key);
+            return current.key;
+        }
+
+        private RBTree.RBNode<K, V> locateNext(RBTree.RBNode<K, V> current, K key) {
+            for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+                long stamp = lock.tryOptimisticRead();
+                if (stamp == 0) {
+                    continue;
+                }
+                RBTree.RBNode<K, V> node = current == null ? higherNode(null) : successor(current);
+                if (lock.validate(stamp)) {
+                    return node;
+                }
+            }
+
+            long stamp = lock.readLock();
+            try {
+                return higherNode(key);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package alg;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent Separate Chaining Hash Table.
+ * Readers never lock: bucket heads are read from atomic array and chains are linked by volatile references.
+ * Writer puts first node of bucket by CAS, otherwise it locks head node of the bucket only.
+ * Resize is cooperative: every writer which meets moved bucket or overflowed table helps to move
+ * remaining buckets, so resize uses as many threads as write into the table.
+ * Neither keys nor values can be {@code null}.
+ */
+public class ConcurrentSCHashTable<K, V> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 30;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    // Hash of forwarding node, hashes of keys are never negative.
+    private static final int MOVED = -1;
+    // Minimal number of buckets claimed by resizing thread at once.
+    private static final int MIN_TRANSFER_STRIDE = 16;
+    private static final int NCPU = Runtime.getRuntime().availableProcessors();
+
+    private volatile AtomicReferenceArray<Node<K, V>> buckets;
+    private volatile int threshold;
+    // resize in progress or null
+    private volatile Resize<K, V> resize;
+    private final Object resizeLock = new Object();
+
+    private final LongAdder size = new LongAdder();
+
+    public ConcurrentSCHashTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize number of keys table can hold without resize.
+     */
+    public ConcurrentSCHashTable(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("negative size: " + expectedSize);
+        }
+        int capacity = 2;
+        while (capacity < MAX_CAPACITY && capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        buckets = new AtomicReferenceArray<>(capacity);
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static class Node<K, V> {
+        final int hash;
+        final K key;
+        volatile V value;
+        volatile Node<K, V> next;
+
+        Node(int hash, K key, V value, Node<K, V> next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    /**
+     * Head of moved bucket, the bucket is in the new buckets array already.
+     */
+    private static final class ForwardingNode<K, V> extends Node<K, V> {
+        final Resize<K, V> resize;
+
+        ForwardingNode(Resize<K, V> resize) {
+            super(MOVED, null, null, null);
+            this.resize = resize;
+        }
+    }
+
+    /**
+     * State of resize shared by all helping threads.
+     * Buckets are claimed by strides from the end of old array, so every bucket is moved by one thread.
+     */
+    private static final class Resize<K, V> {
+        final AtomicReferenceArray<Node<K, V>> from;
+        final AtomicReferenceArray<Node<K, V>> to;
+        final ForwardingNode<K, V> forwarding;
+        // buckets below this index are not claimed yet
+        final AtomicInteger transferIndex;
+        // buckets not moved yet
+        final AtomicInteger remaining;
+        final int stride;
+
+        Resize(AtomicReferenceArray<Node<K, V>> from) {
+            this.from = from;
+            this.to = new AtomicReferenceArray<>(from.length() * 2);
+            this.forwarding = new ForwardingNode<>(this);
+            this.transferIndex = new AtomicInteger(from.length());
+            this.remaining = new AtomicInteger(from.length());
+            this.stride = Math.max(from.length() / (8 * NCPU), MIN_TRANSFER_STRIDE);
+        }
+    }
+
+    public int size() {
+        return (int) size.sum();
+    }
+
+    public boolean hasKey(Object key) {
+        return findNode(key) != null;
+    }
+
+    /**
+     * @return value associated with key or {@code null}.
+     */
+    public V get(Object key) {
+        Node<K, V> node = findNode(key);
+        return node != null ? node.value : null;
+    }
+
+    /**
+     * Add (Key, Value) and return old value, it it was associated with given key previously.
+     *
+     * @param key key
+     * @param val value
+     * @return old value or {@code null}.
+     */
+    public V add(K key, V val) {
+        if (val == null) {
+            throw new NullPointerException();
+        }
+        int hash = hash(key);
+        AtomicReferenceArray<Node<K, V>> tab = buckets;
+        while (true) {
+            int idx = hash & (tab.length() - 1);
+            Node<K, V> head = tab.get(idx);
+            if (head == null) {
+                if (tab.compareAndSet(idx, null, new Node<>(hash, key, val, null))) {
+                    break;
+                }
+            } else if (head.hash == MOVED) {
+                Resize<K, V> moved = ((ForwardingNode<K, V>) head).resize;
+                transfer(moved);
+                tab = moved.to;
+            } else {
+                boolean locked = false;
+                V old = null;
+                synchronized (head) {
+                    // bucket could be moved or get new head while waiting for lock
+                    if (tab.get(idx) == head) {
+                        locked = true;
+                        for (Node<K, V> node = head; ; node = node.next) {
+                            if (node.hash == hash && node.key.equals(key)) {
+                                old = node.value;
+                                node.value = val;
+                                break;
+                            }
+                            if (node.next == null) {
+                                node.next = new Node<>(hash, key, val, null);
+                                break;
+                            }
+                        }
+                    }
+                }
+                if (locked) {
+                    if (old != null) {
+                        return old;
+                    }
+                    break;
+                }
+            }
+        }
+
+        size.increment();
+        if (size.sum() > threshold) {
+            tryResize(tab);
+        }
+        return null;
+    }
+
+    private Node<K, V> findNode(Object key) {
+        int hash = hash(key);
+        AtomicReferenceArray<Node<K, V>> tab = buckets;
+        while (true) {
+            Node<K, V> node = tab.get(hash & (tab.length() - 1));
+            if (node != null && node.hash == MOVED) {
+                tab = ((ForwardingNode<K, V>) node).resize.to;
+                continue;
+            }
+            for (; node != null; node = node.next) {
+                if (node.hash == hash && node.key.equals(key)) {
+                    return node;
+                }
+            }
+            return null;
+        }
+    }
+
+    /*
+     * Start resize of given buckets or join the running one. Start is serialized by a lock,
+     * so only one resize runs at a time, moving of buckets is not.
+     */
+    private void tryResize(AtomicReferenceArray<Node<K, V>> tab) {
+        Resize<K, V> running;
+        synchronized (resizeLock) {
+            running = resize;
+            if (running == null) {
+                if (buckets != tab || size.sum() <= threshold || tab.length() >= MAX_CAPACITY) {
+                    return;
+                }
+                running = new Resize<>(tab);
+                resize = running;
+            }
+        }
+        transfer(running);
+    }
+
+    /*
+     * Claim strides of buckets until nothing is left, the thread which moves the last bucket publishes new array.
+     */
+    private void transfer(Resize<K, V> r) {
+        while (true) {
+            int end = r.transferIndex.getAndAdd(-r.stride);
+            if (end <= 0) {
+                return;
+            }
+            int start = Math.max(end - r.stride, 0);
+            for (int idx = end - 1; idx >= start; idx--) {
+                moveBucket(r, idx);
+            }
+            if (r.remaining.addAndGet(start - end) == 0) {
+                buckets = r.to;
+                threshold = (int) (r.to.length() * LOAD_FACTOR);
+                resize = null;
+                return;
+            }
+        }
+    }
+
+    /*
+     * Copy chain into buckets idx and idx + n of new array, where n is old length, then replace old head
+     * by forwarding node. Nodes are copied, so readers which walk old chain are not affected.
+     */
+    private void moveBucket(Resize<K, V> r, int idx) {
+        int n = r.from.length();
+        while (true) {
+            Node<K, V> head = r.from.get(idx);
+            if (head == null) {
+                if (r.from.compareAndSet(idx, null, r.forwarding)) {
+                    return;
+                }
+                continue;
+            }
+
+            synchronized (head) {
+                if (r.from.get(idx) != head) {
+                    continue;
+                }
+                Node<K, V> lo = null, hi = null;
+                for (Node<K, V> node = head; node != null; node = node.next) {
+                    if ((node.hash & n) == 0) {
+                        lo = new Node<>(node.hash, node.key, node.value, lo);
+                    } else {
+                        hi = new Node<>(node.hash, node.key, node.value, hi);
+                    }
+                }
+                r.to.set(idx, lo);
+                r.to.set(idx + n, hi);
+                r.from.set(idx, r.forwarding);
+                return;
+            }
+        }
+    }
+
+    /*
+     * Spread high bits to low ones, since only low bits select bucket, and clear sign bit.
+     */
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & 0x7fffffff;
+    }
+}
@@ -0,0 +1,153 @@
+package alg;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+
+/**
+ * Interval Tree over Red black Tree.
+ * Intervals are ordered by start then end, every node keeps the greatest end of its subtree,
+ * so subtrees which end before the query are skipped.
+ */
+public class IntervalTree<T, V> extends RBTree<IntervalTree.Interval<T>, V> {
+
+    private final Comparator<T> endpoints;
+
+    public IntervalTree(Comparator<T> endpoints) {
+        super(Interval.comparator(endpoints));
+        this.endpoints = endpoints;
+    }
+
+    /**
+     * Closed interval [start, end].
+     */
+    public static final class Interval<T> {
+        private final T start;
+        private final T end;
+
+        public Interval(T start, T end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public T start() {
+            return start;
+        }
+
+        public T end() {
+            return end;
+        }
+
+        static <T> Comparator<Interval<T>> comparator(Comparator<T> endpoints) {
+            return (a, b) -> {
+                int compare = endpoints.compare(a.start, b.start);
+                return compare != 0 ? compare : endpoints.compare(a.end, b.end);
+            };
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Interval)) {
+                return false;
+            }
+            Interval<?> interval = (Interval<?>) o;
+            return Objects.equals(start, interval.start) && Objects.equals(end, interval.end);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return "[" + start + ", " + end + "]";
+        }
+    }
+
+    static final class IntervalNode<T, V> extends RBNode<Interval<T>, V> {
+        // the greatest end of intervals in subtree
+        T maxEnd;
+
+        IntervalNode(Interval<T> key, V value) {
+            super(key, value);
+            maxEnd = key.end;
+        }
+    }
+
+    @Override
+    public void add(Interval<T> key, V val) {
+        if (endpoints.compare(key.start, key.end) > 0) {
+            throw new IllegalArgumentException("interval start is after its end: " + key);
+        }
+        super.add(key, val);
+    }
+
+    public void add(T start, T end, V val) {
+        add(new Interval<>(start, end), val);
+    }
+
+    /**
+     * Stored intervals which overlap closed interval [from, to], in ascending order.
+     * Takes O(log n + k) for k found intervals.
+     */
+    public List<Interval<T>> overlapping(T from, T to) {
+        List<Interval<T>> found = new ArrayList<>();
+        if (endpoints.compare(from, to) <= 0) {
+            collectOverlapping(node(root), from, to, found);
+        }
+        return found;
+    }
+
+    private void collectOverlapping(IntervalNode<T, V> node, T from, T to, List<Interval<T>> found) {
+        if (node == null || endpoints.compare(node.maxEnd, from) < 0) {
+            // whole subtree ends before query
+            return;
+        }
+
+        collectOverlapping(node(node.left), from, to, found);
+
+        if (endpoints.compare(node.key.start, to) > 0) {
+            // node and right subtree start after query
+            return;
+        }
+        if (endpoints.compare(node.key.end, from) >= 0) {
+            found.add(node.key);
+        }
+
+        collectOverlapping(node(node.right), from, to, found);
+    }
+
+    @Override
+    RBNode<Interval<T>, V> newNode(Interval<T> key, V value) {
+        return new IntervalNode<>(key, value);
+    }
+
+    @Override
+    boolean augmented() {
+        return true;
+    }
+
+    @Override
+    void updateAugmentation(RBNode<Interval<T>, V> node) {
+        super.updateAugmentation(node);
+        IntervalNode<T, V> interval = node(node);
+        T maxEnd = node.key.end;
+        if (node.left != null && endpoints.compare(node(node.left).maxEnd, maxEnd) > 0) {
+            maxEnd = node(node.left).maxEnd;
+        }
+        if (node.right != null && endpoints.compare(node(node.right).maxEnd, maxEnd) > 0) {
+            maxEnd = node(node.right).maxEnd;
+        }
+        interval.maxEnd = maxEnd;
+    }
+
+    private static <T, V> IntervalNode<T, V> node(RBNode<Interval<T>, V> node) {
+        return (IntervalNode<T, V>) node;
+    }
+}
@@ -0,0 +1,191 @@
+package alg;
+
+/**
+ * Open Addressing Hash Table specialized for primitive {@code long} keys and values.
+ * Keys and values are stored in two primitive arrays (16 bytes per slot), lookup probes slots linearly
+ * from the bucket selected by Fibonacci hashing of the key, so nothing is boxed or allocated
+ * unless the table grows. Key 0 marks empty slot, mapping of key 0 itself is kept in separate fields.
+ * Capacity doubles when load factor 0.75 is reached, so a mapping costs from 21 bytes (full table)
+ * to 43 bytes (just grown or presized slightly past a power of two).
+ */
+public class LongLongHashTable {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 30;
+    private static final float LOAD_FACTOR = 0.75f;
+    // 2^64 / golden ratio
+    private static final long PHI = 0x9E3779B97F4A7C15L;
+
+    private final long missingValue;
+
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    // 64 - log2(capacity), high bits of key * PHI select the bucket
+    private int shift;
+
+    private boolean hasZeroKey;
+    private long zeroValue;
+
+    private int size;
+    private int threshold;
+
+    public LongLongHashTable() {
+        this(DEFAULT_CAPACITY, 0);
+    }
+
+    /**
+     * @param expectedSize number of keys table can hold without resize.
+     * @param missingValue value returned for absent keys.
+     */
+    public LongLongHashTable(int expectedSize, long missingValue) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("negative size: " + expectedSize);
+        }
+        if (expectedSize > MAX_CAPACITY * LOAD_FACTOR) {
+            throw new IllegalArgumentException("size exceeds maximum capacity: " + expectedSize);
+        }
+        this.missingValue = missingValue;
+        int capacity = 2;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean hasKey(long key) {
+        return key == 0 ? hasZeroKey : find(key) >= 0;
+    }
+
+    /**
+     * @return value associated with key or missing value.
+     */
+    public long get(long key) {
+        if (key == 0) {
+            return hasZeroKey ? zeroValue : missingValue;
+        }
+        int idx = find(key);
+        return idx >= 0 ? values[idx] : missingValue;
+    }
+
+    /**
+     * Add (Key, Value) and return old value, it it was associated with given key previously.
+     *
+     * @param key key
+     * @param val value
+     * @return old value or missing value.
+     */
+    public long add(long key, long val) {
+        if (key == 0) {
+            long old = hasZeroKey ? zeroValue : missingValue;
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue = val;
+            return old;
+        }
+
+        int idx = slot(key);
+        for (long slotKey; (slotKey = keys[idx]) != 0; idx = (idx + 1) & mask) {
+            if (slotKey == key) {
+                long old = values[idx];
+                values[idx] = val;
+                return old;
+            }
+        }
+
+        if (size >= threshold && keys.length == MAX_CAPACITY) {
+            throw new IllegalStateException("table is full: " + size + " keys");
+        }
+        keys[idx] = key;
+        values[idx] = val;
+        if (++size > threshold) {
+            resize();
+        }
+        return missingValue;
+    }
+
+    /**
+     * Remove key and return its value.
+     *
+     * @return removed value or missing value.
+     */
+    public long remove(long key) {
+        if (key == 0) {
+            if (!hasZeroKey) {
+                return missingValue;
+            }
+            hasZeroKey = false;
+            size--;
+            return zeroValue;
+        }
+
+        int gap = find(key);
+        if (gap < 0) {
+            return missingValue;
+        }
+        long old = values[gap];
+        size--;
+
+        // Backward shift: move following keys into the gap unless the gap is before their home slot.
+        for (int idx = (gap + 1) & mask; keys[idx] != 0; idx = (idx + 1) & mask) {
+            if (((idx - slot(keys[idx])) & mask) >= ((idx - gap) & mask)) {
+                keys[gap] = keys[idx];
+                values[gap] = values[idx];
+                gap = idx;
+            }
+        }
+        keys[gap] = 0;
+        values[gap] = 0;
+        return old;
+    }
+
+    private int find(long key) {
+        for (int idx = slot(key); ; idx = (idx + 1) & mask) {
+            long slotKey = keys[idx];
+            if (slotKey == key) {
+                return idx;
+            }
+            if (slotKey == 0) {
+                return -1;
+            }
+        }
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != 0) {
+                int idx = slot(key);
+                while (keys[idx] != 0) {
+                    idx = (idx + 1) & mask;
+                }
+                keys[idx] = key;
+                values[idx] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+        shift = 64 - Integer.numberOfTrailingZeros(capacity);
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    /*
+     * Fibonacci hashing: multiplication mixes all key bits into the high ones.
+     */
+    private int slot(long key) {
+        return (int) ((key * PHI) >>> shift);
+    }
+}
@@ -0,0 +1,191 @@
+package alg;
+
+/**
+ * Open Addressing Hash Table specialized for primitive {@code long} keys and object values.
+ * Keys and values are stored in two flat arrays (12 bytes per slot with compressed references), lookup probes slots linearly
+ * from the bucket selected by Fibonacci hashing of the key, so nothing is boxed or allocated
+ * unless the table grows. Key 0 marks empty slot, mapping of key 0 itself is kept in separate fields.
+ * Capacity doubles when load factor 0.75 is reached, so a mapping costs from 16 to 32 bytes of the table
+ * with compressed references, values themselves are not counted.
+ */
+public class LongObjectHashTable<V> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 30;
+    private static final float LOAD_FACTOR = 0.75f;
+    // 2^64 / golden ratio
+    private static final long PHI = 0x9E3779B97F4A7C15L;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    // 64 - log2(capacity), high bits of key * PHI select the bucket
+    private int shift;
+
+    private boolean hasZeroKey;
+    private V zeroValue;
+
+    private int size;
+    private int threshold;
+
+    public LongObjectHashTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize number of keys table can hold without resize.
+     */
+    public LongObjectHashTable(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("negative size: " + expectedSize);
+        }
+        if (expectedSize > MAX_CAPACITY * LOAD_FACTOR) {
+            throw new IllegalArgumentException("size exceeds maximum capacity: " + expectedSize);
+        }
+        int capacity = 2;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean hasKey(long key) {
+        return key == 0 ? hasZeroKey : find(key) >= 0;
+    }
+
+    /**
+     * @return value associated with key or {@code null}.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == 0) {
+            return zeroValue;
+        }
+        int idx = find(key);
+        return idx >= 0 ? (V) values[idx] : null;
+    }
+
+    /**
+     * Add (Key, Value) and return old value, it it was associated with given key previously.
+     *
+     * @param key key
+     * @param val value
+     * @return old value or {@code null}.
+     */
+    @SuppressWarnings("unchecked")
+    public V add(long key, V val) {
+        if (key == 0) {
+            V old = zeroValue;
+            if (!hasZeroKey) {
+                hasZeroKey = true;
+                size++;
+            }
+            zeroValue = val;
+            return old;
+        }
+
+        int idx = slot(key);
+        for (long slotKey; (slotKey = keys[idx]) != 0; idx = (idx + 1) & mask) {
+            if (slotKey == key) {
+                V old = (V) values[idx];
+                values[idx] = val;
+                return old;
+            }
+        }
+
+        if (size >= threshold && keys.length == MAX_CAPACITY) {
+            throw new IllegalStateException("table is full: " + size + " keys");
+        }
+        keys[idx] = key;
+        values[idx] = val;
+        if (++size > threshold) {
+            resize();
+        }
+        return null;
+    }
+
+    /**
+     * Remove key and return its value.
+     *
+     * @return removed value or {@code null}.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (key == 0) {
+            V old = zeroValue;
+            if (hasZeroKey) {
+                hasZeroKey = false;
+                zeroValue = null;
+                size--;
+            }
+            return old;
+        }
+
+        int gap = find(key);
+        if (gap < 0) {
+            return null;
+        }
+        V old = (V) values[gap];
+        size--;
+
+        // Backward shift: move following keys into the gap unless the gap is before their home slot.
+        for (int idx = (gap + 1) & mask; keys[idx] != 0; idx = (idx + 1) & mask) {
+            if (((idx - slot(keys[idx])) & mask) >= ((idx - gap) & mask)) {
+                keys[gap] = keys[idx];
+                values[gap] = values[idx];
+                gap = idx;
+            }
+        }
+        keys[gap] = 0;
+        values[gap] = null;
+        return old;
+    }
+
+    private int find(long key) {
+        for (int idx = slot(key); ; idx = (idx + 1) & mask) {
+            long slotKey = keys[idx];
+            if (slotKey == key) {
+                return idx;
+            }
+            if (slotKey == 0) {
+                return -1;
+            }
+        }
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != 0) {
+                int idx = slot(key);
+                while (keys[idx] != 0) {
+                    idx = (idx + 1) & mask;
+                }
+                keys[idx] = key;
+                values[idx] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        shift = 64 - Integer.numberOfTrailingZeros(capacity);
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    /*
+     * Fibonacci hashing: multiplication mixes all key bits into the high ones.
+     */
+    private int slot(long key) {
+        return (int) ((key * PHI) >>> shift);
+    }
+}
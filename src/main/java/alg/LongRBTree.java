@@ -0,0 +1,318 @@
+package alg;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+
+/**
+ * Red black Tree specialized for primitive {@code long} keys.
+ * Nodes live in parallel arrays and refer to each other by index, node color is a bit in a packed bit set.
+ * {@link #contains(long)} does not allocate, {@link #add(long, Object)} does not allocate while size stays
+ * within the initial capacity, past it the arrays grow.
+ * @see RBTree
+ */
+public class LongRBTree<V> implements Tree<Long, V> {
+
+    /**
+     * Index of absent node, slot 0 is never used by real nodes, so its links always point to NIL.
+     */
+    private static final int NIL = 0;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private long[] keys;
+    private Object[] values;
+    private int[] parents;
+    private int[] lefts;
+    private int[] rights;
+    /* bit is set for RED node */
+    private long[] colors;
+
+    private int root = NIL;
+    private int size;
+
+    public LongRBTree() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize number of keys tree can hold without growing its arrays.
+     */
+    public LongRBTree(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("negative size: " + expectedSize);
+        }
+        int capacity = expectedSize + 1;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        parents = new int[capacity];
+        lefts = new int[capacity];
+        rights = new int[capacity];
+        colors = new long[(capacity + 63) >>> 6];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void add(Long key, V val) {
+        add(key.longValue(), val);
+    }
+
+    /**
+     * Insert new key into tree, or override value of existing one.
+     * @param key key
+     * @param val value.
+     */
+    public void add(long key, V val) {
+        int parent = NIL, head = root;
+        int compare = 1;
+        while (head != NIL) {
+            parent = head;
+            compare = Long.compare(key, keys[head]);
+
+            if (compare > 0) {
+                head = rights[head];
+            } else if (compare < 0) {
+                head = lefts[head];
+            } else {
+                // Override value for already exists key, no re-balancing required.
+                values[head] = val;
+                return;
+            }
+        }
+
+        int node = newNode(key, val, parent);
+        if (parent == NIL) {
+            root = node;
+        } else if (compare > 0) {
+            rights[parent] = node;
+        } else {
+            lefts[parent] = node;
+        }
+        rebalanceTree(node);
+    }
+
+    @Override
+    public boolean contains(Object key) {
+        return key instanceof Long && contains(((Long) key).longValue());
+    }
+
+    public boolean contains(long key) {
+        return findNode(key) != NIL;
+    }
+
+    /**
+     * @return value associated with key or {@code null}.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        return (V) values[findNode(key)];
+    }
+
+    /**
+     * @return keys in ascending order.
+     */
+    public PrimitiveIterator.OfLong keyIterator() {
+        return new KeyIterator();
+    }
+
+    private int findNode(long key) {
+        int node = root;
+        while (node != NIL) {
+            long nodeKey = keys[node];
+            if (key == nodeKey) {
+                return node;
+            }
+            node = key > nodeKey ? rights[node] : lefts[node];
+        }
+        return NIL;
+    }
+
+    private int newNode(long key, V val, int parent) {
+        int node = ++size;
+        if (node == keys.length) {
+            grow();
+        }
+        keys[node] = key;
+        values[node] = val;
+        parents[node] = parent;
+        lefts[node] = NIL;
+        rights[node] = NIL;
+        paintRed(node);
+        return node;
+    }
+
+    private void grow() {
+        int capacity = keys.length * 2;
+        keys = Arrays.copyOf(keys, capacity);
+        values = Arrays.copyOf(values, capacity);
+        parents = Arrays.copyOf(parents, capacity);
+        lefts = Arrays.copyOf(lefts, capacity);
+        rights = Arrays.copyOf(rights, capacity);
+        colors = Arrays.copyOf(colors, (capacity + 63) >>> 6);
+    }
+
+    /*
+     * Same cases as RBTree#rebalanceTree, NIL parent of root is black.
+     */
+    private void rebalanceTree(int inserted) {
+        int node = inserted;
+        while (isRed(parents[node]) && node != root) {
+            int parent = parents[node];
+            int grandParent = parents[parent];
+            // consider left subtree
+            if (parent == lefts[grandParent]) {
+                int uncle = rights[grandParent];
+
+                if (isRed(uncle)) {
+                    // Case 1
+                    paintBlack(parent);
+                    paintBlack(uncle);
+                    paintRed(grandParent);
+                    node = grandParent;
+                } else {
+                    if (node == rights[parent]) {
+                        // Case 2
+                        node = parent;
+                        rotateLeft(node);
+                        parent = parents[node];
+                        grandParent = parents[parent];
+                    }
+                    // Case 3
+                    paintBlack(parent);
+                    paintRed(grandParent);
+                    rotateRight(grandParent);
+                }
+                // consider right subtree
+            } else {
+                int uncle = lefts[grandParent];
+
+                if (isRed(uncle)) {
+                    // Case 1
+                    paintBlack(parent);
+                    paintBlack(uncle);
+                    paintRed(grandParent);
+                    node = grandParent;
+                } else {
+                    if (node == lefts[parent]) {
+                        // Case 2
+                        node = parent;
+                        rotateRight(node);
+                        parent = parents[node];
+                        grandParent = parents[parent];
+                    }
+                    // Case 3
+                    paintBlack(parent);
+                    paintRed(grandParent);
+                    rotateLeft(grandParent);
+                }
+            }
+        }
+        paintBlack(root);
+    }
+
+    private void rotateRight(int node) {
+        int sibling = lefts[node];
+        int parent = parents[node];
+
+        lefts[node] = rights[sibling];
+        if (rights[sibling] != NIL) {
+            parents[rights[sibling]] = node;
+        }
+
+        parents[sibling] = parent;
+        if (parent == NIL) {
+            root = sibling;
+        } else if (lefts[parent] == node) {
+            lefts[parent] = sibling;
+        } else {
+            rights[parent] = sibling;
+        }
+        rights[sibling] = node;
+        parents[node] = sibling;
+    }
+
+    private void rotateLeft(int node) {
+        int sibling = rights[node];
+        int parent = parents[node];
+
+        rights[node] = lefts[sibling];
+        if (lefts[sibling] != NIL) {
+            parents[lefts[sibling]] = node;
+        }
+
+        parents[sibling] = parent;
+        if (parent == NIL) {
+            root = sibling;
+        } else if (lefts[parent] == node) {
+            lefts[parent] = sibling;
+        } else {
+            rights[parent] = sibling;
+        }
+        lefts[sibling] = node;
+        parents[node] = sibling;
+    }
+
+    private boolean isRed(int node) {
+        return (colors[node >>> 6] & (1L << node)) != 0;
+    }
+
+    private void paintRed(int node) {
+        colors[node >>> 6] |= 1L << node;
+    }
+
+    private void paintBlack(int node) {
+        colors[node >>> 6] &= ~(1L << node);
+    }
+
+
+    private class KeyIterator implements PrimitiveIterator.OfLong {
+        private int next = root;
+
+        private KeyIterator() {
+            if (next == NIL) {
+                return;
+            }
+            while (lefts[next] != NIL) {
+                next = lefts[next];
+            }
+        }
+
+        @Override
+        public long nextLong() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int current = next;
+            // if you can walk right, walk right, then fully left.
+            // otherwise, walk up until you come from left.
+            if (rights[next] != NIL) {
+                next = rights[next];
+                while (lefts[next] != NIL) {
+                    next = lefts[next];
+                }
+            } else {
+                int child = next;
+                next = parents[next];
+                while (next != NIL && rights[next] == child) {
+                    child = next;
+                    next = parents[next];
+                }
+            }
+            return keys[current];
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != NIL;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package alg;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Open Addressing Hash Table stored in memory mapped file.
+ * Keys and values are byte arrays of fixed width given at creation, entries live off-heap in
+ * the mapped region and survive restart: {@link #open(Path)} maps the file and checks its header,
+ * nothing is loaded into heap. Capacity is fixed at creation, region is limited by 2GB of single mapping.
+ *
+ * <pre>
+ * header: magic | version | keySize | valueSize | capacity | size   (int each, padded to HEADER_SIZE)
+ * slot:   state byte | key bytes | value bytes
+ * </pre>
+ */
+public final class MappedHashTable implements Closeable {
+
+    private static final int MAGIC = 0x4D484254;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int KEY_SIZE_OFFSET = 8;
+    private static final int VALUE_SIZE_OFFSET = 12;
+    private static final int CAPACITY_OFFSET = 16;
+    private static final int SIZE_OFFSET = 20;
+
+    private static final byte EMPTY = 0;
+    private static final byte USED = 1;
+
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int keySize;
+    private final int valueSize;
+    private final int slotSize;
+    private final int mask;
+    private final int threshold;
+    private int size;
+
+    private MappedHashTable(FileChannel channel, MappedByteBuffer buffer) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.keySize = buffer.getInt(KEY_SIZE_OFFSET);
+        this.valueSize = buffer.getInt(VALUE_SIZE_OFFSET);
+        this.slotSize = 1 + keySize + valueSize;
+        int capacity = buffer.getInt(CAPACITY_OFFSET);
+        this.mask = capacity - 1;
+        this.threshold = (int) (capacity * LOAD_FACTOR);
+        this.size = buffer.getInt(SIZE_OFFSET);
+    }
+
+    /**
+     * Create new table file, existing file is overwritten.
+     *
+     * @param path file path
+     * @param keySize width of keys in bytes
+     * @param valueSize width of values in bytes
+     * @param expectedSize number of keys table has to hold
+     */
+    public static MappedHashTable create(Path path, int keySize, int valueSize, int expectedSize) throws IOException {
+        if (keySize <= 0 || valueSize < 0 || expectedSize < 0) {
+            throw new IllegalArgumentException("keySize: " + keySize + ", valueSize: " + valueSize
+                    + ", expectedSize: " + expectedSize);
+        }
+        if (expectedSize > MAX_CAPACITY * LOAD_FACTOR) {
+            throw new IllegalArgumentException("size exceeds maximum capacity: " + expectedSize);
+        }
+        int capacity = 2;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        long length = regionLength(capacity, keySize, valueSize);
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("table does not fit into single mapping: " + length + " bytes");
+        }
+
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            buffer.putInt(MAGIC_OFFSET, MAGIC);
+            buffer.putInt(VERSION_OFFSET, VERSION);
+            buffer.putInt(KEY_SIZE_OFFSET, keySize);
+            buffer.putInt(VALUE_SIZE_OFFSET, valueSize);
+            buffer.putInt(CAPACITY_OFFSET, capacity);
+            buffer.putInt(SIZE_OFFSET, 0);
+            return new MappedHashTable(channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Map existing table file.
+     */
+    public static MappedHashTable open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long fileLength = channel.size();
+            if (fileLength < HEADER_SIZE || fileLength > Integer.MAX_VALUE) {
+                throw new IOException("not a hash table file: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileLength);
+            int capacity = buffer.getInt(CAPACITY_OFFSET);
+            if (buffer.getInt(MAGIC_OFFSET) != MAGIC
+                    || buffer.getInt(VERSION_OFFSET) != VERSION
+                    || capacity <= 0 || Integer.bitCount(capacity) != 1
+                    || regionLength(capacity, buffer.getInt(KEY_SIZE_OFFSET), buffer.getInt(VALUE_SIZE_OFFSET)) != fileLength) {
+                throw new IOException("not a hash table file or it is corrupted: " + path);
+            }
+            return new MappedHashTable(channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean hasKey(byte[] key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * @return copy of value associated with key or {@code null}.
+     */
+    public byte[] get(byte[] key) {
+        byte[] value = new byte[valueSize];
+        return get(key, value) ? value : null;
+    }
+
+    /**
+     * Copy value associated with key into given array, without allocation.
+     *
+     * @return {@code true} if key was found.
+     */
+    public boolean get(byte[] key, byte[] value) {
+        int slot = find(key);
+        if (slot < 0) {
+            return false;
+        }
+        readValue(slot, value);
+        return true;
+    }
+
+    /**
+     * Add (Key, Value) and return old value, it it was associated with given key previously.
+     *
+     * @param key key of key size
+     * @param val value of value size
+     * @return old value or {@code null}.
+     */
+    public byte[] add(byte[] key, byte[] val) {
+        if (val.length != valueSize) {
+            throw new IllegalArgumentException("value size is " + val.length + ", expected " + valueSize);
+        }
+        int slot = find(key);
+        if (slot >= 0) {
+            byte[] old = new byte[valueSize];
+            readValue(slot, old);
+            writeValue(slot, val);
+            return old;
+        }
+        if (size >= threshold) {
+            throw new IllegalStateException("table is full: " + size + " keys");
+        }
+
+        slot = -(slot + 1);
+        int offset = offset(slot);
+        for (int i = 0; i < keySize; i++) {
+            buffer.put(offset + 1 + i, key[i]);
+        }
+        writeValue(slot, val);
+        // slot becomes visible after its content is written
+        buffer.put(offset, USED);
+        buffer.putInt(SIZE_OFFSET, ++size);
+        return null;
+    }
+
+    /**
+     * Flush changes to the file.
+     */
+    public void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    /*
+     * Slot of the key, or -(empty slot + 1) where key has to be inserted.
+     */
+    private int find(byte[] key) {
+        if (key.length != keySize) {
+            throw new IllegalArgumentException("key size is " + key.length + ", expected " + keySize);
+        }
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            int offset = offset(slot);
+            if (buffer.get(offset) == EMPTY) {
+                return -(slot + 1);
+            }
+            if (keyEqualTo(offset + 1, key)) {
+                return slot;
+            }
+        }
+    }
+
+    private boolean keyEqualTo(int offset, byte[] key) {
+        for (int i = 0; i < keySize; i++) {
+            if (buffer.get(offset + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void readValue(int slot, byte[] value) {
+        int offset = offset(slot) + 1 + keySize;
+        for (int i = 0; i < valueSize; i++) {
+            value[i] = buffer.get(offset + i);
+        }
+    }
+
+    private void writeValue(int slot, byte[] value) {
+        int offset = offset(slot) + 1 + keySize;
+        for (int i = 0; i < valueSize; i++) {
+            buffer.put(offset + i, value[i]);
+        }
+    }
+
+    private int offset(int slot) {
+        return HEADER_SIZE + slot * slotSize;
+    }
+
+    private static long regionLength(int capacity, int keySize, int valueSize) {
+        return HEADER_SIZE + (long) capacity * (1 + keySize + valueSize);
+    }
+
+    /*
+     * FNV-1a with final avalanche, hash has to be stable between runs since it is persisted by slot position.
+     */
+    private static int hash(byte[] key) {
+        int h = 0x811C9DC5;
+        for (byte b : key) {
+            h = (h ^ (b & 0xFF)) * 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        return h;
+    }
+}
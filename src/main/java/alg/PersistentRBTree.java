@@ -0,0 +1,238 @@
+package alg;
+
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import static alg.RBTree.Color.BLACK;
+import static alg.RBTree.Color.RED;
+
+
+/**
+ * Immutable (persistent) Red black Tree.
+ * Update copies only the path from root to changed node and shares all other nodes with previous version,
+ * so every version is a snapshot which is safe to read from any thread without locks.
+ */
+public final class PersistentRBTree<K, V> {
+
+    private final Comparator<K> comparator;
+    private final Node<K, V> root;
+    private final int size;
+
+    private PersistentRBTree(Comparator<K> comparator, Node<K, V> root, int size) {
+        this.comparator = comparator;
+        this.root = root;
+        this.size = size;
+    }
+
+    public static <K, V> PersistentRBTree<K, V> empty(Comparator<K> comparator) {
+        return new PersistentRBTree<>(comparator, null, 0);
+    }
+
+
+    static final class Node<K, V> {
+        final K key;
+        final V value;
+        final Node<K, V> left;
+        final Node<K, V> right;
+        final RBTree.Color color;
+
+        Node(RBTree.Color color, Node<K, V> left, K key, V value, Node<K, V> right) {
+            this.color = color;
+            this.left = left;
+            this.key = key;
+            this.value = value;
+            this.right = right;
+        }
+
+        @Override
+        public String toString() {
+            return color + "(" + key + "[" + value + "])";
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Insert key into new version of the tree, this version is not changed.
+     * @param key key
+     * @param value value
+     * @return new version of the tree.
+     */
+    public PersistentRBTree<K, V> add(K key, V value) {
+        Insertion insertion = new Insertion(key, value);
+        Node<K, V> newRoot = insertion.insert(root);
+        if (newRoot.color == RED) {
+            newRoot = new Node<>(BLACK, newRoot.left, newRoot.key, newRoot.value, newRoot.right);
+        }
+        return new PersistentRBTree<>(comparator, newRoot, insertion.added ? size + 1 : size);
+    }
+
+    public boolean contains(Object key) {
+        return getNode(key) != null;
+    }
+
+    /**
+     * @return value associated with key or {@code null}.
+     */
+    public V get(Object key) {
+        Node<K, V> node = getNode(key);
+        return node != null ? node.value : null;
+    }
+
+    public Set<K> keysSet() {
+        return new AbstractSet<K>() {
+            @Override
+            public boolean contains(Object o) {
+                return PersistentRBTree.this.contains(o);
+            }
+
+            @Override
+            public Iterator<K> iterator() {
+                return new KeyIterator<>(root);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    Node<K, V> root() {
+        return root;
+    }
+
+    private Node<K, V> getNode(Object key) {
+        Node<K, V> node = root;
+        while (node != null) {
+            @SuppressWarnings("unchecked")
+            int compare = comparator.compare((K) key, node.key);
+            if (compare == 0) {
+                return node;
+            }
+            node = compare > 0 ? node.right : node.left;
+        }
+        return null;
+    }
+
+    private final class Insertion {
+        private final K key;
+        private final V value;
+        private boolean added;
+
+        Insertion(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        Node<K, V> insert(Node<K, V> node) {
+            if (node == null) {
+                added = true;
+                return new Node<>(RED, null, key, value, null);
+            }
+
+            int compare = comparator.compare(key, node.key);
+            if (compare < 0) {
+                return balance(node.color, insert(node.left), node.key, node.value, node.right);
+            } else if (compare > 0) {
+                return balance(node.color, node.left, node.key, node.value, insert(node.right));
+            }
+            // Override value for already exists key, no re-balancing required.
+            return new Node<>(node.color, node.left, key, value, node.right);
+        }
+    }
+
+    /*
+     * Okasaki's balance: black node with red child and red grandchild in any of four shapes
+     * is rebuilt as red node with two black children, red violation moves one level up.
+     *
+     *          B(z)          B(z)          B(x)          B(x)
+     *          /             /                \             \
+     *        R(y)          R(x)              R(z)          R(y)
+     *        /               \               /               \
+     *      R(x)              R(y)          R(y)              R(z)
+     *
+     *                                 R(y)
+     *                  ->            /    \
+     *                              B(x)   B(z)
+     */
+    private static <K, V> Node<K, V> balance(RBTree.Color color, Node<K, V> left, K key, V value, Node<K, V> right) {
+        if (color == BLACK) {
+            if (isRed(left) && isRed(left.left)) {
+                Node<K, V> x = left.left;
+                return new Node<>(RED,
+                        new Node<>(BLACK, x.left, x.key, x.value, x.right),
+                        left.key, left.value,
+                        new Node<>(BLACK, left.right, key, value, right));
+            }
+            if (isRed(left) && isRed(left.right)) {
+                Node<K, V> y = left.right;
+                return new Node<>(RED,
+                        new Node<>(BLACK, left.left, left.key, left.value, y.left),
+                        y.key, y.value,
+                        new Node<>(BLACK, y.right, key, value, right));
+            }
+            if (isRed(right) && isRed(right.left)) {
+                Node<K, V> y = right.left;
+                return new Node<>(RED,
+                        new Node<>(BLACK, left, key, value, y.left),
+                        y.key, y.value,
+                        new Node<>(BLACK, y.right, right.key, right.value, right.right));
+            }
+            if (isRed(right) && isRed(right.right)) {
+                Node<K, V> z = right.right;
+                return new Node<>(RED,
+                        new Node<>(BLACK, left, key, value, right.left),
+                        right.key, right.value,
+                        new Node<>(BLACK, z.left, z.key, z.value, z.right));
+            }
+        }
+        return new Node<>(color, left, key, value, right);
+    }
+
+    private static <K, V> boolean isRed(Node<K, V> node) {
+        return node != null && node.color == RED;
+    }
+
+
+    private static final class KeyIterator<K, V> implements Iterator<K> {
+        // nodes whose key and right subtree are not visited yet, the least one on top.
+        private final Deque<Node<K, V>> path = new ArrayDeque<>();
+
+        KeyIterator(Node<K, V> root) {
+            pushLeft(root);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !path.isEmpty();
+        }
+
+        @Override
+        public K next() {
+            if (path.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            Node<K, V> node = path.pop();
+            pushLeft(node.right);
+            return node.key;
+        }
+
+        private void pushLeft(Node<K, V> node) {
+            for (; node != null; node = node.left) {
+                path.push(node);
+            }
+        }
+    }
+}
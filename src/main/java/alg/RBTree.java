@@ -1,6 +1,7 @@
 package alg;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 import static alg.RBTree.Color.BLACK;
 import static alg.RBTree.Color.RED;
@@ -17,16 +18,31 @@ public class RBTree<K, V> implements Tree<K,V> {
     }
 
     private final Comparator<K> comparator;
+    private final boolean orderStatistics;
     private int size;
 
     RBNode<K, V> root;
 
+    // node with the greatest key, finger for monotonic inserts
+    private RBNode<K, V> last;
+    // previous insert added new greatest key, so next one probably will too
+    private boolean appending;
+
     public RBTree(Comparator<K> comparator) {
+        this(comparator, false);
+    }
+
+    /**
+     * @param comparator keys comparator
+     * @param orderStatistics maintain subtree sizes for {@link #rank}, {@link #select} and {@link #countInRange}.
+     */
+    public RBTree(Comparator<K> comparator, boolean orderStatistics) {
         this.comparator = comparator;
+        this.orderStatistics = orderStatistics;
     }
 
 
-    static final class RBNode<K, V> {
+    static class RBNode<K, V> {
         final K key;
         V value;
 
@@ -35,6 +51,8 @@ public class RBTree<K, V> implements Tree<K,V> {
         RBNode<K, V> right;
 
         Color color = RED;
+        // number of nodes in subtree, maintained for augmented tree only
+        int count = 1;
 
         RBNode(K key, V value) {
             this.key = key;
@@ -48,8 +66,18 @@ public class RBTree<K, V> implements Tree<K,V> {
     }
 
 
+    /**
+     * Remove key from the tree.
+     *
+     * @return removed key or {@code null} if tree does not contain it.
+     */
     public K remove(K elem) {
-        return null;
+        RBNode<K, V> node = getNode(elem);
+        if (node == null) {
+            return null;
+        }
+        deleteNode(node);
+        return node.key;
     }
 
     @Override
@@ -73,6 +101,11 @@ public class RBTree<K, V> implements Tree<K,V> {
                 return new KeyIterator();
             }
 
+            @Override
+            public Spliterator<K> spliterator() {
+                return new KeySpliterator(firstNode(), null, 0, size);
+            }
+
             @Override
             public int size() {
                 return size;
@@ -80,21 +113,178 @@ public class RBTree<K, V> implements Tree<K,V> {
         };
     }
 
+    /**
+     * Fill empty tree with keys sorted in strictly ascending order.
+     * Tree is linked bottom-up in O(n) without descents and rotations.
+     *
+     * @param keys sorted keys
+     * @param values values, {@code values[i]} is associated with {@code keys[i]}
+     */
+    public void addAllSorted(K[] keys, V[] values) {
+        if (keys.length != values.length) {
+            throw new IllegalArgumentException("keys and values have different length");
+        }
+        buildFromSorted(new SortedSource(keys, values), keys.length);
+    }
+
+    /**
+     * Fill empty tree with entries sorted by key in strictly ascending order.
+     *
+     * @param entries sorted entries
+     * @param count number of entries to take from iterator
+     */
+    public void addAllSorted(Iterator<? extends Map.Entry<? extends K, ? extends V>> entries, int count) {
+        buildFromSorted(new SortedSource(entries), count);
+    }
+
     @Override
     public void add(K key, V value) {
         RBNode<K, V> node = insertNode(key, value);
         if (node != null) {
+            if (augmented()) {
+                for (RBNode<K, V> parent = node.parent; parent != null; parent = parent.parent) {
+                    updateAugmentation(parent);
+                }
+            }
             rebalanceTree(node);
         }
     }
 
+    /**
+     * Number of keys less than given one, requires order statistics.
+     */
+    public int rank(K key) {
+        requireOrderStatistics();
+        return countLess(key, false);
+    }
+
+    /**
+     * Key at given position of ascending order, requires order statistics.
+     * @param index position, from 0 to size - 1.
+     */
+    public K select(int index) {
+        requireOrderStatistics();
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+        }
+
+        RBNode<K, V> node = root;
+        while (true) {
+            int leftCount = countOf(node.left);
+            if (index < leftCount) {
+                node = node.left;
+            } else if (index > leftCount) {
+                index -= leftCount + 1;
+                node = node.right;
+            } else {
+                return node.key;
+            }
+        }
+    }
+
+    /**
+     * Number of keys in range [lo, hi], requires order statistics.
+     */
+    public int countInRange(K lo, K hi) {
+        requireOrderStatistics();
+        if (comparator.compare(lo, hi) > 0) {
+            return 0;
+        }
+        return countLess(hi, true) - countLess(lo, false);
+    }
+
+    private int countLess(K key, boolean inclusive) {
+        int count = 0;
+        RBNode<K, V> node = root;
+        while (node != null) {
+            int compare = comparator.compare(key, node.key);
+            if (compare < 0) {
+                node = node.left;
+            } else if (compare > 0) {
+                count += countOf(node.left) + 1;
+                node = node.right;
+            } else {
+                return count + countOf(node.left) + (inclusive ? 1 : 0);
+            }
+        }
+        return count;
+    }
+
+    private void requireOrderStatistics() {
+        if (!orderStatistics) {
+            throw new IllegalStateException("order statistics are not maintained by this tree");
+        }
+    }
+
+    /*
+     * Node factory, augmented trees keep additional data in node subclasses.
+     */
+    RBNode<K, V> newNode(K key, V value) {
+        return new RBNode<>(key, value);
+    }
+
+    /*
+     * Tree keeps per-node data which depends on subtree, e.g. subtree size.
+     * Such data is recomputed bottom-up for the path of inserted node and for both nodes of each rotation.
+     */
+    boolean augmented() {
+        return orderStatistics;
+    }
+
+    /*
+     * Recompute augmented data of the node from its children.
+     */
+    void updateAugmentation(RBNode<K, V> node) {
+        node.count = 1 + countOf(node.left) + countOf(node.right);
+    }
+
+    @Override
     public boolean contains(Object key) {
+        return getNode(key) != null;
+    }
+
+    /**
+     * @return value associated with key or {@code null}.
+     */
+    public V get(Object key) {
+        RBNode<K, V> node = getNode(key);
+        return node != null ? node.value : null;
+    }
+
+    /**
+     * @return the greatest key less than or equal to given one, or {@code null}.
+     */
+    public K floor(K key) {
+        RBNode<K, V> node = floorNode(key);
+        return node != null ? node.key : null;
+    }
+
+    /**
+     * @return the least key greater than or equal to given one, or {@code null}.
+     */
+    public K ceiling(K key) {
+        RBNode<K, V> node = ceilingNode(key, true);
+        return node != null ? node.key : null;
+    }
+
+    /**
+     * Lazy ascending iterator over keys in range [lo, hi].
+     * Both bounds are located in O(log n), each step is amortized O(1).
+     */
+    public Iterator<K> range(K lo, K hi) {
+        if (comparator.compare(lo, hi) > 0) {
+            return Collections.emptyIterator();
+        }
+        return new KeyIterator(ceilingNode(lo, true), ceilingNode(hi, false));
+    }
+
+    final RBNode<K, V> getNode(Object key) {
         RBNode<K, V> node = root;
         while (node != null) {
             @SuppressWarnings("unchecked")
             int compare = comparator.compare((K) key, node.key);
             if (compare == 0) {
-                return true;
+                return node;
             } else if (compare > 0) {
                 node = node.right;
             } else {
@@ -102,13 +292,88 @@ public class RBTree<K, V> implements Tree<K,V> {
             }
         }
 
-        return false;
+        return null;
+    }
+
+    /*
+     * The least node with key greater than (or equal to, if inclusive) given one.
+     */
+    private RBNode<K, V> ceilingNode(K key, boolean inclusive) {
+        RBNode<K, V> node = root, ceiling = null;
+        while (node != null) {
+            int compare = comparator.compare(key, node.key);
+            if (compare < 0 || (compare == 0 && inclusive)) {
+                ceiling = node;
+                if (compare == 0) {
+                    break;
+                }
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return ceiling;
+    }
+
+    private RBNode<K, V> floorNode(K key) {
+        RBNode<K, V> node = root, floor = null;
+        while (node != null) {
+            int compare = comparator.compare(key, node.key);
+            if (compare < 0) {
+                node = node.left;
+            } else {
+                floor = node;
+                if (compare == 0) {
+                    break;
+                }
+                node = node.right;
+            }
+        }
+        return floor;
+    }
+
+    final RBNode<K, V> firstNode() {
+        RBNode<K, V> node = root;
+        if (node != null) {
+            while (node.left != null) {
+                node = node.left;
+            }
+        }
+        return node;
+    }
+
+    /*
+     * In-order successor: if you can walk right, walk right, then fully left.
+     * Otherwise, walk up until you come from left.
+     */
+    static <K, V> RBNode<K, V> successor(RBNode<K, V> node) {
+        RBNode<K, V> next = node.right;
+        if (next != null) {
+            while (next.left != null) {
+                next = next.left;
+            }
+            return next;
+        }
+
+        RBNode<K, V> child = node;
+        next = node.parent;
+        while (next != null && next.right == child) {
+            child = next;
+            next = next.parent;
+        }
+        return next;
     }
 
 
     final RBNode<K, V> insertNode(K key, V value) {
         RBNode<K, V> parent = null, head = root;
         int compare = 1;
+        if (appending && (compare = comparator.compare(key, last.key)) > 0) {
+            // The greatest node has no right child, attach new one there without descent from root.
+            parent = last;
+            head = null;
+        }
+
         while (head != null) {
             parent = head;
             compare = comparator.compare(key, head.key);
@@ -125,7 +390,7 @@ public class RBTree<K, V> implements Tree<K,V> {
         }
 
         size++;
-        RBNode<K, V> node = new RBNode<>(key, value);
+        RBNode<K, V> node = newNode(key, value);
         node.parent = parent;
         if (parent == null) {
             root = node;
@@ -135,10 +400,276 @@ public class RBTree<K, V> implements Tree<K,V> {
             parent.left = node;
         }
 
+        appending = parent == null || (parent == last && compare > 0);
+        if (appending) {
+            last = node;
+        }
+
         // insert new node, need to re-balance tree
         return node;
     }
 
+    /*
+     * Unlink node from the tree. Node with two children is replaced by its successor node
+     * (keys are final, so nodes are relinked instead of copying successor's key), then
+     * black height lost on the path of the unlinked node is restored by fixAfterDeletion.
+     */
+    final void deleteNode(RBNode<K, V> node) {
+        size--;
+        if (node == last) {
+            // the greatest node has no right child, so its predecessor is max of left subtree or the parent
+            last = node.left;
+            if (last != null) {
+                while (last.right != null) {
+                    last = last.right;
+                }
+            } else {
+                last = node.parent;
+            }
+            appending = appending && last != null;
+        }
+
+        RBNode<K, V> replacement, parent;
+        Color removedColor = node.color;
+        if (node.left == null) {
+            replacement = node.right;
+            parent = node.parent;
+            transplant(node, node.right);
+        } else if (node.right == null) {
+            replacement = node.left;
+            parent = node.parent;
+            transplant(node, node.left);
+        } else {
+            RBNode<K, V> next = node.right;
+            while (next.left != null) {
+                next = next.left;
+            }
+            removedColor = next.color;
+            replacement = next.right;
+            if (next.parent == node) {
+                parent = next;
+            } else {
+                parent = next.parent;
+                transplant(next, next.right);
+                next.right = node.right;
+                next.right.parent = next;
+            }
+            transplant(node, next);
+            next.left = node.left;
+            next.left.parent = next;
+            next.color = node.color;
+        }
+        node.parent = node.left = node.right = null;
+
+        if (augmented()) {
+            for (RBNode<K, V> p = parent; p != null; p = p.parent) {
+                updateAugmentation(p);
+            }
+        }
+        if (removedColor == BLACK) {
+            fixAfterDeletion(replacement, parent);
+        }
+    }
+
+    /*
+     * Put child in place of node in node's parent.
+     */
+    private void transplant(RBNode<K, V> node, RBNode<K, V> child) {
+        if (node.parent == null) {
+            root = child;
+        } else if (node == node.parent.left) {
+            node.parent.left = child;
+        } else {
+            node.parent.right = child;
+        }
+        if (child != null) {
+            child.parent = node.parent;
+        }
+    }
+
+    /*
+     * Subtree of X (possibly null, so its parent is passed along) has one black node less than its sibling W.
+     * Red X is just painted black. Otherwise, for X being left child:
+     * Case 1: W is red - rotate parent left, so X gets black sibling.
+     * Case 2: W and both its children are black - paint W red, problem moves up to parent.
+     * Case 3: W's right child is black, left one is red - rotate W right, this turns it into case 4.
+     * Case 4: W's right child is red - rotate parent left and recolor, black height is restored.
+     * Right child cases are mirrored.
+     */
+    private void fixAfterDeletion(RBNode<K, V> node, RBNode<K, V> parent) {
+        while (node != root && !colorOf(node, RED)) {
+            if (node == parent.left) {
+                RBNode<K, V> sibling = parent.right;
+                if (colorOf(sibling, RED)) {
+                    // Case 1
+                    paintTo(sibling, BLACK);
+                    paintTo(parent, RED);
+                    rotateLeft(parent);
+                    sibling = parent.right;
+                }
+                if (!colorOf(sibling.left, RED) && !colorOf(sibling.right, RED)) {
+                    // Case 2
+                    paintTo(sibling, RED);
+                    node = parent;
+                    parent = node.parent;
+                } else {
+                    if (!colorOf(sibling.right, RED)) {
+                        // Case 3
+                        paintTo(sibling.left, BLACK);
+                        paintTo(sibling, RED);
+                        rotateRight(sibling);
+                        sibling = parent.right;
+                    }
+                    // Case 4
+                    sibling.color = parent.color;
+                    paintTo(parent, BLACK);
+                    paintTo(sibling.right, BLACK);
+                    rotateLeft(parent);
+                    node = root;
+                }
+            } else {
+                RBNode<K, V> sibling = parent.left;
+                if (colorOf(sibling, RED)) {
+                    paintTo(sibling, BLACK);
+                    paintTo(parent, RED);
+                    rotateRight(parent);
+                    sibling = parent.left;
+                }
+                if (!colorOf(sibling.left, RED) && !colorOf(sibling.right, RED)) {
+                    paintTo(sibling, RED);
+                    node = parent;
+                    parent = node.parent;
+                } else {
+                    if (!colorOf(sibling.left, RED)) {
+                        paintTo(sibling.right, BLACK);
+                        paintTo(sibling, RED);
+                        rotateLeft(sibling);
+                        sibling = parent.left;
+                    }
+                    sibling.color = parent.color;
+                    paintTo(parent, BLACK);
+                    paintTo(sibling.left, BLACK);
+                    rotateRight(parent);
+                    node = root;
+                }
+            }
+        }
+        paintTo(node, BLACK);
+    }
+
+    private void buildFromSorted(SortedSource source, int count) {
+        if (root != null) {
+            throw new IllegalStateException("tree is not empty");
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("negative count: " + count);
+        }
+        root = buildFromSorted(source, 0, 0, count - 1, redLevel(count));
+        size = count;
+
+        last = root;
+        if (last != null) {
+            while (last.right != null) {
+                last = last.right;
+            }
+        }
+        appending = last != null;
+    }
+
+    /*
+     * Middle element of range become a subtree root, halves become its children.
+     * Result is a complete binary tree where every level except the deepest is full,
+     * so all paths contain the same number of black nodes if only nodes
+     * of the deepest level are painted red.
+     */
+    private RBNode<K, V> buildFromSorted(SortedSource source, int level, int lo, int hi, int redLevel) {
+        if (hi < lo) {
+            return null;
+        }
+        int mid = (lo + hi) >>> 1;
+
+        RBNode<K, V> left = buildFromSorted(source, level + 1, lo, mid - 1, redLevel);
+        RBNode<K, V> node = source.nextNode();
+        if (level != redLevel) {
+            node.color = BLACK;
+        }
+
+        node.left = left;
+        if (left != null) {
+            left.parent = node;
+        }
+
+        RBNode<K, V> right = buildFromSorted(source, level + 1, mid + 1, hi, redLevel);
+        node.right = right;
+        if (right != null) {
+            right.parent = node;
+        }
+
+        if (augmented()) {
+            updateAugmentation(node);
+        }
+        return node;
+    }
+
+    /*
+     * Level to paint red: the deepest one of complete binary tree with given number of nodes.
+     * For 2^k - 1 nodes tree is perfect, returned level does not exist and nobody is painted red.
+     */
+    private static int redLevel(int count) {
+        int level = 0;
+        for (int m = count - 1; m >= 0; m = m / 2 - 1) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * Sorted input for bulk load: either parallel arrays or entries iterator.
+     */
+    private final class SortedSource {
+        private final K[] keys;
+        private final V[] values;
+        private final Iterator<? extends Map.Entry<? extends K, ? extends V>> entries;
+
+        private int next;
+        private K last;
+
+        SortedSource(K[] keys, V[] values) {
+            this.keys = keys;
+            this.values = values;
+            this.entries = null;
+        }
+
+        SortedSource(Iterator<? extends Map.Entry<? extends K, ? extends V>> entries) {
+            this.keys = null;
+            this.values = null;
+            this.entries = entries;
+        }
+
+        RBNode<K, V> nextNode() {
+            K key;
+            V value;
+            if (entries == null) {
+                key = keys[next];
+                value = values[next];
+            } else {
+                if (!entries.hasNext()) {
+                    throw new IllegalArgumentException("less than count entries: " + next);
+                }
+                Map.Entry<? extends K, ? extends V> entry = entries.next();
+                key = entry.getKey();
+                value = entry.getValue();
+            }
+
+            if (next > 0 && comparator.compare(last, key) >= 0) {
+                throw new IllegalArgumentException("keys are not sorted: " + last + " before " + key);
+            }
+            next++;
+            last = key;
+            return newNode(key, value);
+        }
+    }
+
     /*
      * Let K will be inserted element, P be K's parent.
      * R(..) - red node,
@@ -315,6 +846,11 @@ public class RBTree<K, V> implements Tree<K,V> {
         }
         sibling.right = node;
         node.parent = sibling;
+
+        if (augmented()) {
+            updateAugmentation(node);
+            updateAugmentation(sibling);
+        }
     }
 
     final void rotateLeft(RBNode<K, V> node) {
@@ -341,6 +877,11 @@ public class RBTree<K, V> implements Tree<K,V> {
         }
         sibling.left = node;
         node.parent = sibling;
+
+        if (augmented()) {
+            updateAugmentation(node);
+            updateAugmentation(sibling);
+        }
     }
 
     private static <K, V> boolean colorOf(RBNode<K, V> node, Color color) {
@@ -353,6 +894,10 @@ public class RBTree<K, V> implements Tree<K,V> {
         }
     }
 
+    private static <K, V> int countOf(RBNode<K, V> node) {
+        return node != null ? node.count : 0;
+    }
+
     private static <K, V> RBNode<K, V> parentOf(RBNode<K, V> node) {
         return node != null ? node.parent : null;
     }
@@ -368,15 +913,16 @@ public class RBTree<K, V> implements Tree<K,V> {
 
     private abstract class NodeInOrderIterator<T> implements Iterator<T> {
         private RBNode<K, V> next;
+        // first node after the end of iteration, null if iteration goes to the last node
+        private final RBNode<K, V> fence;
 
         private NodeInOrderIterator() {
-            next = root;
-            if (next == null) {
-                return;
-            }
-            while (next.left != null) {
-                next = next.left;
-            }
+            this(firstNode(), null);
+        }
+
+        private NodeInOrderIterator(RBNode<K, V> first, RBNode<K, V> fence) {
+            this.next = first == fence ? null : first;
+            this.fence = fence;
         }
 
         final RBNode<K, V> nextNode() {
@@ -384,30 +930,11 @@ public class RBTree<K, V> implements Tree<K,V> {
                 throw new NoSuchElementException();
             }
             RBNode<K, V> current = next;
-            // if you can walk right, walk right, then fully left.
-            // otherwise, walk up until you come from left.
-            if (next.right != null) {
-                next = next.right;
-
-                while (next.left != null)
-                    next = next.left;
-
-                return current;
-            } else {
-                while (true) {
-                    RBNode<K, V> parent = next.parent;
-                    if (parent == null) {
-                        next = null;
-                        return current;
-                    }
-
-                    if (parent.left == next) {
-                        next = parent;
-                        return current;
-                    }
-                    next = parent;
-                }
+            next = successor(next);
+            if (next == fence) {
+                next = null;
             }
+            return current;
         }
 
         @Override
@@ -422,10 +949,104 @@ public class RBTree<K, V> implements Tree<K,V> {
     }
 
     private class KeyIterator extends NodeInOrderIterator<K> implements Iterator<K> {
+        private KeyIterator() {
+        }
+
+        private KeyIterator(RBNode<K, V> first, RBNode<K, V> fence) {
+            super(first, fence);
+        }
+
         @Override
         public K next() {
             RBNode<K, V> node = nextNode();
             return node.key;
         }
     }
-}
\ No newline at end of file
+
+    /*
+     * Covers nodes from current (inclusive) to fence (exclusive) in order.
+     * Split takes the root of the covered part as a boundary: left spliterator gets keys before it,
+     * this one continues from it. Next splits use the right child of current boundary (for right side)
+     * or the left child of fence (for left side), so every split halves a subtree.
+     * Estimates are exact with order statistics, otherwise only top-level spliterator is SIZED.
+     */
+    private final class KeySpliterator implements Spliterator<K> {
+        private RBNode<K, V> current;
+        private final RBNode<K, V> fence;
+        // 0 for top-level, 1 for right split and -1 for left split
+        private int side;
+        private int est;
+
+        private KeySpliterator(RBNode<K, V> current, RBNode<K, V> fence, int side, int est) {
+            this.current = current;
+            this.fence = fence;
+            this.side = side;
+            this.est = est;
+        }
+
+        @Override
+        public Spliterator<K> trySplit() {
+            RBNode<K, V> e = current, f = fence;
+            RBNode<K, V> s = (e == null || e == f) ? null
+                    : side == 0 ? root
+                    : side > 0 ? e.right
+                    : f != null ? f.left
+                    : null;
+            if (s == null || s == e || s == f || comparator.compare(e.key, s.key) >= 0) {
+                return null;
+            }
+
+            int prefix = orderStatistics ? countLess(s.key, false) - countLess(e.key, false) : est >>> 1;
+            side = 1;
+            current = s;
+            est -= prefix;
+            return new KeySpliterator(e, s, -1, prefix);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super K> action) {
+            if (action == null) {
+                throw new NullPointerException();
+            }
+            RBNode<K, V> e = current;
+            if (e == null || e == fence) {
+                return false;
+            }
+            current = successor(e);
+            if (est > 0) {
+                est--;
+            }
+            action.accept(e.key);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super K> action) {
+            if (action == null) {
+                throw new NullPointerException();
+            }
+            RBNode<K, V> e = current, f = fence;
+            current = f;
+            for (; e != null && e != f; e = successor(e)) {
+                action.accept(e.key);
+            }
+        }
+
+        @Override
+        public long estimateSize() {
+            return est;
+        }
+
+        @Override
+        public int characteristics() {
+            // without order statistics halves get estimates only, so just the unsplit range is sized
+            return (orderStatistics ? Spliterator.SIZED | Spliterator.SUBSIZED : side == 0 ? Spliterator.SIZED : 0)
+                    | Spliterator.DISTINCT | Spliterator.SORTED | Spliterator.ORDERED;
+        }
+
+        @Override
+        public Comparator<? super K> getComparator() {
+            return comparator;
+        }
+    }
+}
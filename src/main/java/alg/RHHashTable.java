@@ -0,0 +1,192 @@
+package alg;
+
+/**
+ * Open Addressing Hash Table with Robin Hood probing.
+ * Keys and values are stored next to each other in a single flat array, there is no node per entry.
+ * Insertion takes the slot from an entry which is closer to its home bucket than the inserted one,
+ * so probe sequences stay short and lookup of absent key stops early.
+ */
+public class RHHashTable<K, V> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.8f;
+
+    // key of slot i at 2 * i, value at 2 * i + 1
+    private Object[] table;
+    // hash of slot key, 0 for empty slot
+    private int[] hashes;
+    private int mask;
+
+    private int size;
+    private int threshold;
+
+    public RHHashTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize number of keys table can hold without resize.
+     */
+    public RHHashTable(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("negative size: " + expectedSize);
+        }
+        int capacity = Integer.highestOneBit(Math.max((int) (expectedSize / LOAD_FACTOR), 2) * 2 - 1);
+        allocate(capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean hasKey(Object key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * @return value associated with key or {@code null}.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        int idx = find(key);
+        return idx >= 0 ? (V) table[2 * idx + 1] : null;
+    }
+
+    /**
+     * Add (Key, Value) and return old value, it it was associated with given key previously.
+     *
+     * @param key key
+     * @param val value
+     * @return old value or {@code null}.
+     */
+    @SuppressWarnings("unchecked")
+    public V add(K key, V val) {
+        int hash = hash(key);
+        int idx = hash & mask;
+        for (int dist = 0; ; dist++, idx = (idx + 1) & mask) {
+            int slotHash = hashes[idx];
+            if (slotHash == 0 || distance(slotHash, idx) < dist) {
+                // Key is absent: it would be found before empty slot or slot of richer entry.
+                break;
+            }
+            if (slotHash == hash && table[2 * idx].equals(key)) {
+                V old = (V) table[2 * idx + 1];
+                table[2 * idx + 1] = val;
+                return old;
+            }
+        }
+
+        if (size >= threshold) {
+            resize();
+        }
+        size++;
+        place(hash, key, val);
+        return null;
+    }
+
+    /**
+     * Remove key and return its value.
+     *
+     * @return removed value or {@code null}.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        int idx = find(key);
+        if (idx < 0) {
+            return null;
+        }
+        V old = (V) table[2 * idx + 1];
+        size--;
+
+        // Backward shift: move following entries one slot closer to home until empty slot or entry at home.
+        int next = (idx + 1) & mask;
+        while (hashes[next] != 0 && distance(hashes[next], next) > 0) {
+            hashes[idx] = hashes[next];
+            table[2 * idx] = table[2 * next];
+            table[2 * idx + 1] = table[2 * next + 1];
+            idx = next;
+            next = (next + 1) & mask;
+        }
+        hashes[idx] = 0;
+        table[2 * idx] = null;
+        table[2 * idx + 1] = null;
+        return old;
+    }
+
+    private int find(Object key) {
+        int hash = hash(key);
+        int idx = hash & mask;
+        for (int dist = 0; ; dist++, idx = (idx + 1) & mask) {
+            int slotHash = hashes[idx];
+            if (slotHash == 0 || distance(slotHash, idx) < dist) {
+                return -1;
+            }
+            if (slotHash == hash && table[2 * idx].equals(key)) {
+                return idx;
+            }
+        }
+    }
+
+    /*
+     * Put absent key: walk from home bucket and swap with every entry closer to its own home,
+     * displaced entry continues the walk.
+     */
+    private void place(int hash, Object key, Object val) {
+        int idx = hash & mask;
+        for (int dist = 0; ; dist++, idx = (idx + 1) & mask) {
+            int slotHash = hashes[idx];
+            if (slotHash == 0) {
+                hashes[idx] = hash;
+                table[2 * idx] = key;
+                table[2 * idx + 1] = val;
+                return;
+            }
+
+            int slotDist = distance(slotHash, idx);
+            if (slotDist < dist) {
+                Object slotKey = table[2 * idx], slotVal = table[2 * idx + 1];
+                hashes[idx] = hash;
+                table[2 * idx] = key;
+                table[2 * idx + 1] = val;
+                hash = slotHash;
+                key = slotKey;
+                val = slotVal;
+                dist = slotDist;
+            }
+        }
+    }
+
+    private void resize() {
+        Object[] oldTable = table;
+        int[] oldHashes = hashes;
+        allocate(oldHashes.length * 2);
+        for (int i = 0; i < oldHashes.length; i++) {
+            if (oldHashes[i] != 0) {
+                place(oldHashes[i], oldTable[2 * i], oldTable[2 * i + 1]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        table = new Object[capacity * 2];
+        hashes = new int[capacity];
+        mask = capacity - 1;
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    /*
+     * Distance from home bucket of the hash to given slot.
+     */
+    private int distance(int hash, int idx) {
+        return (idx - (hash & mask)) & mask;
+    }
+
+    /*
+     * Spread high bits to low ones, since only low bits select home bucket. 0 marks empty slot, so it is never returned.
+     */
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        return h != 0 ? h : 1;
+    }
+}
@@ -1,6 +1,25 @@
 package alg;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.Array;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.IntStream;
 
 /**
  * Separate Chaining Hash Table.
@@ -8,15 +27,88 @@ import java.lang.reflect.Array;
  */
 public class SCHashTable<K, V> {
 
-    @SuppressWarnings("unchecked")
-    private Node<K, V>[] buckets = (Node<K, V>[]) Array.newInstance(Node.class, 10);
+    private static final int DEFAULT_CAPACITY = 10;
+    private static final float DEFAULT_LOAD_FACTOR = 0.75f;
+
+    // Number of old buckets moved by each operation during incremental resize.
+    private static final int MIGRATION_STEP = 4;
+
+    // Chain of this length is converted to tree bin, chain which can not be converted is retried when it doubles.
+    private static final int TREEIFY_THRESHOLD = 8;
+    // Tree bin split by resize stays a tree only if it keeps more nodes than this.
+    private static final int UNTREEIFY_THRESHOLD = 6;
+    // Smaller table is expected to be resized soon, so long chains are not treeified.
+    private static final int MIN_TREEIFY_CAPACITY = 64;
+
+    // Chains of this length and longer share the last histogram slot.
+    private static final int HISTOGRAM_SIZE = 16;
+    // Counters reported while statistics are disabled, never updated.
+    private static final StatsCounter NO_STATS = new StatsCounter();
+
+    // Bulk add of this many entries builds the table in parallel.
+    private static final int PARALLEL_ADD_THRESHOLD = 1 << 16;
+    // Number of bucket ranges per thread of parallel bulk add.
+    private static final int RANGES_PER_THREAD = 4;
+
+    private Node<K, V>[] buckets;
 
     private int size;
 
-    private float threshold = buckets.length;
+    private float threshold;
+
+    private final float loadFactor;
+
+    private final boolean incrementalResize;
+
+    // Buckets before incremental resize, null when resize is not in progress.
+    private Node<K, V>[] oldBuckets;
+    // Old buckets below this index are moved already.
+    private int migrated;
+
+    // Statistics of operations, null unless enabled by recordStats.
+    private StatsCounter statsCounter;
+
+    public SCHashTable() {
+        this(false);
+    }
+
+    /**
+     * @param incrementalResize spread resize over subsequent operations instead of moving all nodes at once.
+     *                          While resize is in progress lookups consult both old and new buckets.
+     */
+    public SCHashTable(boolean incrementalResize) {
+        this(0, DEFAULT_LOAD_FACTOR, incrementalResize);
+    }
+
+    /**
+     * @param expectedSize number of keys table can hold without resize.
+     * @param loadFactor average number of keys per bucket which triggers resize.
+     */
+    public SCHashTable(int expectedSize, float loadFactor) {
+        this(expectedSize, loadFactor, false);
+    }
+
+    /**
+     * @param expectedSize number of keys table can hold without resize.
+     * @param loadFactor average number of keys per bucket which triggers resize.
+     * @param incrementalResize spread resize over subsequent operations instead of moving all nodes at once.
+     */
+    @SuppressWarnings("unchecked")
+    public SCHashTable(int expectedSize, float loadFactor, boolean incrementalResize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("negative size: " + expectedSize);
+        }
+        if (!(loadFactor > 0)) {
+            throw new IllegalArgumentException("illegal load factor: " + loadFactor);
+        }
+        this.loadFactor = loadFactor;
+        this.incrementalResize = incrementalResize;
+        buckets = (Node<K, V>[]) Array.newInstance(Node.class, capacityFor(DEFAULT_CAPACITY, expectedSize));
+        threshold = buckets.length * loadFactor;
+    }
 
-    private static class Node<K, V> {
-        K key;
+    static class Node<K, V> implements Map.Entry<K, V> {
+        final K key;
         V value;
         Node<K, V> next;
 
@@ -24,21 +116,691 @@ public class SCHashTable<K, V> {
             this.key = key;
             this.value = val;
         }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            V old = this.value;
+            this.value = value;
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            return Objects.equals(key, e.getKey()) && Objects.equals(value, e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(value);
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    /**
+     * Head of bucket which keeps its nodes in {@link RBTree} instead of a chain.
+     * Keys are ordered by hash, then by {@link Comparable#compareTo}, so tree bin holds keys of single
+     * class comparable to itself, which is the case for collisions of String or boxed numbers keys.
+     * No two keys of the bin compare as equal: keys which do while not being equal stay in chain,
+     * so compareTo inconsistent with equals can not merge distinct keys.
+     */
+    private static final class TreeBin<K, V> extends Node<K, V> {
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static final Comparator<Object> BIN_ORDER = (a, b) -> {
+            int compare = Integer.compare(a.hashCode(), b.hashCode());
+            return compare != 0 ? compare : ((Comparable) a).compareTo(b);
+        };
+
+        final Class<?> keyClass;
+        final RBTree<K, Node<K, V>> tree;
+
+        @SuppressWarnings("unchecked")
+        TreeBin(Class<?> keyClass) {
+            super(null, null);
+            this.keyClass = keyClass;
+            this.tree = new RBTree<>((Comparator<K>) BIN_ORDER);
+        }
+
+        boolean accepts(Object key) {
+            return key.getClass() == keyClass;
+        }
+
+        Node<K, V> find(Object key) {
+            if (accepts(key)) {
+                Node<K, V> node = tree.get(key);
+                return node != null && node.key.equals(key) ? node : null;
+            }
+            // key of other class still can be equal to some of keys, check all of them
+            for (RBTree.RBNode<K, Node<K, V>> node = tree.firstNode(); node != null; node = RBTree.successor(node)) {
+                if (node.key.equals(key)) {
+                    return node.value;
+                }
+            }
+            return null;
+        }
+
+        void add(Node<K, V> node) {
+            node.next = null;
+            tree.add(node.key, node);
+        }
+
+        /*
+         * Whether bin has other key which compares as equal to given one.
+         */
+        boolean hasTie(Object key) {
+            return tree.get(key) != null;
+        }
+
+        /*
+         * Link bin nodes into chain.
+         */
+        Node<K, V> toChain() {
+            Node<K, V> head = null;
+            for (RBTree.RBNode<K, Node<K, V>> node = tree.firstNode(); node != null; node = RBTree.successor(node)) {
+                node.value.next = head;
+                head = node.value;
+            }
+            return head;
+        }
+    }
+
+    /**
+     * Counters of comparisons and rehashes accumulated by operations while statistics are enabled.
+     */
+    private static final class StatsCounter {
+        // comparisons of the current operation, it can visit both old and new buckets
+        int compared;
+
+        long lookups;
+        long lookupComparisons;
+        int maxLookupComparisons;
+
+        long adds;
+        long addComparisons;
+        int maxAddComparisons;
+
+        long rehashes;
+        long rehashNanos;
+        long maxRehashNanos;
+
+        void lookupDone() {
+            lookups++;
+            lookupComparisons += compared;
+            maxLookupComparisons = Math.max(maxLookupComparisons, compared);
+            compared = 0;
+        }
+
+        void addDone() {
+            adds++;
+            addComparisons += compared;
+            maxAddComparisons = Math.max(maxAddComparisons, compared);
+            compared = 0;
+        }
+
+        void rehashDone(long nanos) {
+            rehashes++;
+            rehashNanos += nanos;
+            maxRehashNanos = Math.max(maxRehashNanos, nanos);
+        }
+
+        double averageLookupComparisons() {
+            long lookups = this.lookups;
+            return lookups == 0 ? 0 : (double) lookupComparisons / lookups;
+        }
+
+        double averageAddComparisons() {
+            long adds = this.adds;
+            return adds == 0 ? 0 : (double) addComparisons / adds;
+        }
+    }
+
+    /**
+     * Snapshot of table statistics. Counters of operations are zero unless statistics are
+     * enabled by {@link #recordStats(boolean)}, the chain length histogram and load are always computed.
+     */
+    public static final class Stats implements SCHashTableStatsMXBean {
+        private final int[] chainLengthHistogram;
+        private final long lookups;
+        private final double averageLookupComparisons;
+        private final int maxLookupComparisons;
+        private final long adds;
+        private final double averageAddComparisons;
+        private final int maxAddComparisons;
+        private final long rehashes;
+        private final long rehashNanos;
+        private final long maxRehashNanos;
+        private final int size;
+        private final int capacity;
+        private final double maxLoadFactor;
+
+        private Stats(StatsCounter counter, int[] chainLengthHistogram, int size, int capacity, float threshold) {
+            this.chainLengthHistogram = chainLengthHistogram;
+            this.size = size;
+            this.capacity = capacity;
+            this.maxLoadFactor = threshold / capacity;
+            this.lookups = counter.lookups;
+            this.averageLookupComparisons = counter.averageLookupComparisons();
+            this.maxLookupComparisons = counter.maxLookupComparisons;
+            this.adds = counter.adds;
+            this.averageAddComparisons = counter.averageAddComparisons();
+            this.maxAddComparisons = counter.maxAddComparisons;
+            this.rehashes = counter.rehashes;
+            this.rehashNanos = counter.rehashNanos;
+            this.maxRehashNanos = counter.maxRehashNanos;
+        }
+
+        @Override
+        public int[] getChainLengthHistogram() {
+            return chainLengthHistogram.clone();
+        }
+
+        @Override
+        public long getLookups() {
+            return lookups;
+        }
+
+        @Override
+        public double getAverageLookupComparisons() {
+            return averageLookupComparisons;
+        }
+
+        @Override
+        public int getMaxLookupComparisons() {
+            return maxLookupComparisons;
+        }
+
+        @Override
+        public long getAdds() {
+            return adds;
+        }
+
+        @Override
+        public double getAverageAddComparisons() {
+            return averageAddComparisons;
+        }
+
+        @Override
+        public int getMaxAddComparisons() {
+            return maxAddComparisons;
+        }
+
+        @Override
+        public long getRehashes() {
+            return rehashes;
+        }
+
+        @Override
+        public long getRehashNanos() {
+            return rehashNanos;
+        }
+
+        @Override
+        public long getMaxRehashNanos() {
+            return maxRehashNanos;
+        }
+
+        @Override
+        public int getSize() {
+            return size;
+        }
+
+        @Override
+        public int getCapacity() {
+            return capacity;
+        }
+
+        @Override
+        public double getLoadFactor() {
+            return (double) size / capacity;
+        }
+
+        @Override
+        public double getMaxLoadFactor() {
+            return maxLoadFactor;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{size=" + size + ", capacity=" + capacity
+                    + ", loadFactor=" + getLoadFactor() + ", maxLoadFactor=" + maxLoadFactor
+                    + ", lookups=" + lookups + ", averageLookupComparisons=" + averageLookupComparisons
+                    + ", maxLookupComparisons=" + maxLookupComparisons
+                    + ", adds=" + adds + ", averageAddComparisons=" + averageAddComparisons
+                    + ", maxAddComparisons=" + maxAddComparisons
+                    + ", rehashes=" + rehashes + ", rehashNanos=" + rehashNanos
+                    + ", maxRehashNanos=" + maxRehashNanos
+                    + ", chainLengthHistogram=" + Arrays.toString(chainLengthHistogram) + "}";
+        }
     }
 
     public int size() {
         return size;
     }
 
-    
+    /**
+     * Apply action to every mapping. Table must not be modified by the action.
+     */
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        forEach(buckets, action);
+        if (oldBuckets != null) {
+            forEach(oldBuckets, action);
+        }
+    }
+
+    private static <K, V> void forEach(Node<K, V>[] buckets, BiConsumer<? super K, ? super V> action) {
+        for (Node<K, V> bucket : buckets) {
+            if (bucket instanceof TreeBin) {
+                RBTree<K, Node<K, V>> tree = ((TreeBin<K, V>) bucket).tree;
+                for (RBTree.RBNode<K, Node<K, V>> node = tree.firstNode(); node != null; node = RBTree.successor(node)) {
+                    action.accept(node.key, node.value.value);
+                }
+            } else {
+                for (; bucket != null; bucket = bucket.next) {
+                    action.accept(bucket.key, bucket.value);
+                }
+            }
+        }
+    }
+
+    /**
+     * Keys view. Its iterator and spliterator must not be used after the table is modified.
+     */
+    public Set<K> keysSet() {
+        return new AbstractSet<K>() {
+            @Override
+            public boolean contains(Object o) {
+                return hasKey(o);
+            }
+
+            @Override
+            public Iterator<K> iterator() {
+                return new NodeIterator<>(node -> node.key);
+            }
+
+            @Override
+            public Spliterator<K> spliterator() {
+                return new NodeSpliterator<>(node -> node.key, Spliterator.NONNULL);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Mappings view. Its iterator and spliterator must not be used after the table is modified.
+     */
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new NodeIterator<>(SCHashTable.this::entryOf);
+            }
+
+            @Override
+            public Spliterator<Map.Entry<K, V>> spliterator() {
+                return new NodeSpliterator<>(SCHashTable.this::entryOf, Spliterator.NONNULL);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Walks nodes of buckets with indexes in range [index, fence). During incremental resize
+     * old buckets follow the new ones: index i >= buckets.length stands for old bucket i - buckets.length.
+     */
+    private class NodeCursor {
+        final Node<K, V>[] tab = buckets;
+        final Node<K, V>[] oldTab = oldBuckets;
+        int index;
+        int fence;
+        // position inside the current bucket, at most one of them is not null
+        Node<K, V> chain;
+        RBTree.RBNode<K, Node<K, V>> treeNode;
+
+        NodeCursor() {
+            this.fence = tab.length + (oldTab != null ? oldTab.length : 0);
+        }
+
+        final boolean inBucket() {
+            return chain != null || treeNode != null;
+        }
+
+        final Node<K, V> advance() {
+            if (treeNode != null) {
+                treeNode = RBTree.successor(treeNode);
+                if (treeNode != null) {
+                    return treeNode.value;
+                }
+            } else if (chain != null) {
+                chain = chain.next;
+                if (chain != null) {
+                    return chain;
+                }
+            }
+
+            while (index < fence) {
+                Node<K, V> bucket = index < tab.length ? tab[index] : oldTab[index - tab.length];
+                index++;
+                if (bucket instanceof TreeBin) {
+                    treeNode = ((TreeBin<K, V>) bucket).tree.firstNode();
+                    if (treeNode != null) {
+                        return treeNode.value;
+                    }
+                } else if (bucket != null) {
+                    chain = bucket;
+                    return bucket;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final class NodeIterator<T> extends NodeCursor implements Iterator<T> {
+        private final Function<Node<K, V>, T> mapper;
+        private Node<K, V> next;
+
+        NodeIterator(Function<Node<K, V>, T> mapper) {
+            this.mapper = mapper;
+            this.next = advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public T next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Node<K, V> current = next;
+            next = advance();
+            return mapper.apply(current);
+        }
+    }
+
+    /*
+     * Split halves the remaining range of buckets. Only top-level spliterator knows exact size,
+     * halves get half of the estimate, as sizes of bucket ranges are not tracked.
+     */
+    private final class NodeSpliterator<T> extends NodeCursor implements Spliterator<T> {
+        private final Function<Node<K, V>, T> mapper;
+        private final int characteristics;
+        private long est;
+        private boolean split;
+
+        NodeSpliterator(Function<Node<K, V>, T> mapper, int characteristics) {
+            this.mapper = mapper;
+            this.characteristics = characteristics;
+            this.est = size;
+        }
+
+        /*
+         * Upper half of unvisited buckets is split off, the rest of the current bucket stays here.
+         */
+        @Override
+        public Spliterator<T> trySplit() {
+            int mid = (index + fence) >>> 1;
+            if (inBucket() ? index >= fence : mid <= index) {
+                return null;
+            }
+            NodeSpliterator<T> suffix = new NodeSpliterator<>(mapper, characteristics);
+            suffix.index = mid;
+            suffix.fence = fence;
+            suffix.est = est >>>= 1;
+            suffix.split = split = true;
+            fence = mid;
+            return suffix;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (action == null) {
+                throw new NullPointerException();
+            }
+            Node<K, V> node = advance();
+            if (node == null) {
+                return false;
+            }
+            if (est > 0) {
+                est--;
+            }
+            action.accept(mapper.apply(node));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            if (action == null) {
+                throw new NullPointerException();
+            }
+            for (Node<K, V> node = advance(); node != null; node = advance()) {
+                action.accept(mapper.apply(node));
+            }
+            est = 0;
+        }
+
+        @Override
+        public long estimateSize() {
+            return est;
+        }
+
+        @Override
+        public int characteristics() {
+            return (split ? 0 : Spliterator.SIZED) | Spliterator.DISTINCT | characteristics;
+        }
+    }
+
+    /**
+     * Enable or disable statistics of operations. Disabled statistics cost a single field check per operation,
+     * enabling starts counting from zero.
+     */
+    public void recordStats(boolean enabled) {
+        if (!enabled) {
+            statsCounter = null;
+        } else if (statsCounter == null) {
+            statsCounter = new StatsCounter();
+        }
+    }
+
+    /**
+     * Snapshot of statistics. Histogram of chain lengths walks all buckets, slot i counts buckets with i nodes,
+     * the last slot counts all longer chains. Tree bin counts as a chain of its size,
+     * buckets which are not migrated by incremental resize yet are counted as well.
+     */
+    public Stats stats() {
+        Node<K, V>[] buckets = this.buckets;
+        return new Stats(counter(), chainLengthHistogram(buckets, oldBuckets), size, buckets.length, threshold);
+    }
+
+    /**
+     * Publish statistics of this table on platform MBean server. Attributes are read from the table
+     * on each request without synchronization, so values are approximate while the table is modified.
+     * Counters and load are read directly, only the chain length histogram walks the buckets.
+     */
+    public void registerStatsMBean(ObjectName name) throws JMException {
+        SCHashTableStatsMXBean bean = new SCHashTableStatsMXBean() {
+            @Override
+            public int[] getChainLengthHistogram() {
+                return chainLengthHistogram(buckets, oldBuckets);
+            }
+
+            @Override
+            public long getLookups() {
+                return counter().lookups;
+            }
+
+            @Override
+            public double getAverageLookupComparisons() {
+                return counter().averageLookupComparisons();
+            }
+
+            @Override
+            public int getMaxLookupComparisons() {
+                return counter().maxLookupComparisons;
+            }
+
+            @Override
+            public long getAdds() {
+                return counter().adds;
+            }
+
+            @Override
+            public double getAverageAddComparisons() {
+                return counter().averageAddComparisons();
+            }
+
+            @Override
+            public int getMaxAddComparisons() {
+                return counter().maxAddComparisons;
+            }
+
+            @Override
+            public long getRehashes() {
+                return counter().rehashes;
+            }
+
+            @Override
+            public long getRehashNanos() {
+                return counter().rehashNanos;
+            }
+
+            @Override
+            public long getMaxRehashNanos() {
+                return counter().maxRehashNanos;
+            }
+
+            @Override
+            public int getSize() {
+                return size;
+            }
+
+            @Override
+            public int getCapacity() {
+                return buckets.length;
+            }
+
+            @Override
+            public double getLoadFactor() {
+                return (double) size / buckets.length;
+            }
+
+            @Override
+            public double getMaxLoadFactor() {
+                return threshold / buckets.length;
+            }
+        };
+        ManagementFactory.getPlatformMBeanServer().registerMBean(bean, name);
+    }
+
+    // counters of enabled statistics, empty ones otherwise
+    private StatsCounter counter() {
+        StatsCounter counter = statsCounter;
+        return counter != null ? counter : NO_STATS;
+    }
+
+    /*
+     * Buckets are passed as read once, since another thread can read statistics while resize replaces them.
+     */
+    private static <K, V> int[] chainLengthHistogram(Node<K, V>[] buckets, Node<K, V>[] oldBuckets) {
+        int[] histogram = new int[HISTOGRAM_SIZE];
+        countChains(buckets, histogram);
+        if (oldBuckets != null) {
+            countChains(oldBuckets, histogram);
+        }
+        return histogram;
+    }
+
+    private static <K, V> void countChains(Node<K, V>[] buckets, int[] histogram) {
+        for (Node<K, V> bucket : buckets) {
+            int length = 0;
+            if (bucket instanceof TreeBin) {
+                length = ((TreeBin<K, V>) bucket).tree.size();
+            } else {
+                for (; bucket != null; bucket = bucket.next) {
+                    length++;
+                }
+            }
+            histogram[Math.min(length, HISTOGRAM_SIZE - 1)]++;
+        }
+    }
+
     public boolean hasKey(Object key) {
+        Node<K, V> node = getNode(key);
+        if (statsCounter != null) {
+            statsCounter.lookupDone();
+        }
+        return node != null;
+    }
+
+    /**
+     * @return value associated with key or {@code null}.
+     */
+    public V get(Object key) {
+        Node<K, V> node = getNode(key);
+        if (statsCounter != null) {
+            statsCounter.lookupDone();
+        }
+        if (node == null) {
+            return null;
+        }
+        afterNodeAccess(node);
+        return node.value;
+    }
+
+    private Node<K, V> getNode(Object key) {
         int hash = hash(key);
-        int idx = index(hash, buckets.length);
-        for (Node<K, V> bucket = buckets[idx]; bucket != null; bucket = bucket.next) {
-            if (bucket.key.equals(key))
-                return true;
+        Node<K, V> node = findNode(buckets[index(hash, buckets.length)], key);
+        if (node == null && oldBuckets != null) {
+            node = findNode(oldBuckets[index(hash, oldBuckets.length)], key);
         }
-        return false;
+        return node;
+    }
+
+    private Node<K, V> findNode(Node<K, V> bucket, Object key) {
+        if (bucket instanceof TreeBin) {
+            TreeBin<K, V> bin = (TreeBin<K, V>) bucket;
+            if (statsCounter != null) {
+                // tree is not instrumented, count its height bound: 2 * log2(n + 1)
+                statsCounter.compared += 2 * (32 - Integer.numberOfLeadingZeros(bin.tree.size()));
+            }
+            return bin.find(key);
+        }
+        int compared = 0;
+        for (; bucket != null; bucket = bucket.next) {
+            compared++;
+            if (keyEqualTo(bucket, key))
+                break;
+        }
+        if (statsCounter != null) {
+            statsCounter.compared += compared;
+        }
+        return bucket;
     }
 
     /**
@@ -49,42 +811,316 @@ public class SCHashTable<K, V> {
      * @return old value or {@code null}.
      */
     public V add(K key, V val) {
-        V old = null;
         int hash = hash(key);
+        if (oldBuckets != null) {
+            // key has to be looked up in new buckets only
+            migrateBucket(index(hash, oldBuckets.length));
+            migrateStep();
+        }
         int idx = index(hash, buckets.length);
-        Node<K, V> node = buckets[idx], last = null;
-        while (node != null && old == null) {
-            old = tryReplaceValue(node, key, val);
-            last = node;
-            node = node.next;
+        Node<K, V> node = findNode(buckets[idx], key);
+        if (statsCounter != null) {
+            statsCounter.addDone();
+        }
+        if (node != null) {
+            V old = node.value;
+            node.value = val;
+            afterValueUpdate(node);
+            return old;
         }
 
-        if (old == null) {
-            size++;
-            addMapping(idx, last, buckets, new Node<>(key, val));
+        size++;
+        node = newNode(key, val);
+        if (buckets[idx] instanceof TreeBin) {
+            addToTree(idx, node);
+        } else {
+            addToChain(idx, node);
         }
 
         if (needRehash()) {
-            // System.out.println("start rehash");
-            doRehash();
+            long start = statsCounter != null ? System.nanoTime() : 0;
+            if (incrementalResize) {
+                startResize();
+            } else {
+                doRehash();
+            }
+            if (statsCounter != null) {
+                statsCounter.rehashDone(System.nanoTime() - start);
+            }
+        }
+        afterNodeInsertion(node);
+        return null;
+    }
+
+    /**
+     * Add all mappings of the map. Buckets are resized at most once, up front, to fit all keys.
+     * Large map on a table without statistics is added in parallel: keys are grouped by ranges
+     * of bucket indexes and each range is filled by one thread of common fork-join pool.
+     * Parallel add does not call node hooks, subclasses which depend on them add sequentially.
+     */
+    public void addAll(Map<? extends K, ? extends V> map) {
+        int count = map.size();
+        ensureCapacity(size + count);
+        if (count < PARALLEL_ADD_THRESHOLD || statsCounter != null) {
+            for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+                add(entry.getKey(), entry.getValue());
+            }
+            return;
+        }
+
+        Object[] keys = new Object[count];
+        Object[] values = new Object[count];
+        int i = 0;
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            keys[i] = entry.getKey();
+            values[i] = entry.getValue();
+            i++;
+        }
+
+        int length = buckets.length;
+        int ranges = Math.min(length, ForkJoinPool.getCommonPoolParallelism() * RANGES_PER_THREAD);
+        int[] indexes = new int[count];
+        IntStream.range(0, count).parallel().forEach(j -> indexes[j] = index(hash(keys[j]), length));
+
+        // counting sort of entries by range, range r covers buckets [r * length / ranges, (r + 1) * length / ranges)
+        int[] rangeStart = new int[ranges + 1];
+        for (int idx : indexes) {
+            rangeStart[rangeOf(idx, length, ranges) + 1]++;
+        }
+        for (int r = 0; r < ranges; r++) {
+            rangeStart[r + 1] += rangeStart[r];
+        }
+        int[] order = new int[count];
+        int[] position = Arrays.copyOf(rangeStart, ranges);
+        for (int j = 0; j < count; j++) {
+            order[position[rangeOf(indexes[j], length, ranges)]++] = j;
+        }
+
+        // no two threads touch the same bucket, join of the stream publishes their writes
+        size += IntStream.range(0, ranges).parallel().map(r -> {
+            int added = 0;
+            for (int k = rangeStart[r]; k < rangeStart[r + 1]; k++) {
+                int j = order[k];
+                @SuppressWarnings("unchecked")
+                boolean isNew = addToBucket(indexes[j], (K) keys[j], (V) values[j]);
+                if (isNew) {
+                    added++;
+                }
+            }
+            return added;
+        }).sum();
+    }
+
+    private static int rangeOf(int idx, int length, int ranges) {
+        return (int) ((long) idx * ranges / length);
+    }
+
+    /*
+     * Add without resize, size update and hooks.
+     */
+    private boolean addToBucket(int idx, K key, V val) {
+        Node<K, V> node = findNode(buckets[idx], key);
+        if (node != null) {
+            node.value = val;
+            return false;
+        }
+        node = newNode(key, val);
+        if (buckets[idx] instanceof TreeBin) {
+            addToTree(idx, node);
+        } else {
+            addToChain(idx, node);
+        }
+        return true;
+    }
+
+    /*
+     * Resize once, so given number of keys fits without further resizes.
+     * Incremental resize in progress is finished first.
+     */
+    private void ensureCapacity(int expectedSize) {
+        if (oldBuckets != null) {
+            migrateStep(oldBuckets.length);
+        }
+        if (expectedSize > threshold) {
+            long start = statsCounter != null ? System.nanoTime() : 0;
+            rehash(capacityFor(buckets.length, expectedSize));
+            if (statsCounter != null) {
+                statsCounter.rehashDone(System.nanoTime() - start);
+            }
+        }
+    }
+
+    /*
+     * Capacity doubles from the given one, so old bucket idx spreads to buckets idx + k * old length.
+     */
+    private int capacityFor(int capacity, int expectedSize) {
+        while (capacity * loadFactor < expectedSize && capacity <= Integer.MAX_VALUE / 4) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * Remove key and return its value.
+     *
+     * @return removed value or {@code null}.
+     */
+    public V remove(Object key) {
+        int hash = hash(key);
+        if (oldBuckets != null) {
+            // key has to be looked up in new buckets only
+            migrateBucket(index(hash, oldBuckets.length));
+            migrateStep();
+        }
+        int idx = index(hash, buckets.length);
+        Node<K, V> node = buckets[idx] instanceof TreeBin ? removeFromTree(idx, key) : removeFromChain(idx, key);
+        if (node == null) {
+            return null;
+        }
+        size--;
+        afterNodeRemoval(node);
+        return node.value;
+    }
+
+    /*
+     * Node factory and hooks for subclasses which keep additional per-node data,
+     * e.g. access order of the cache. Nodes are never copied by resize or tree bins,
+     * so node created by newNode stays in the table until it is removed.
+     */
+    Node<K, V> newNode(K key, V val) {
+        return new Node<>(key, val);
+    }
+
+    // value of existing node was returned by get
+    void afterNodeAccess(Node<K, V> node) {
+    }
+
+    // value of existing node was replaced by add
+    void afterValueUpdate(Node<K, V> node) {
+    }
+
+    // new node was added, table is resized already if it was needed
+    void afterNodeInsertion(Node<K, V> node) {
+    }
+
+    // node was unlinked by remove
+    void afterNodeRemoval(Node<K, V> node) {
+    }
+
+    // mapping given out by entry view, node itself writes value through
+    Map.Entry<K, V> entryOf(Node<K, V> node) {
+        return node;
+    }
+
+    private void addToChain(int idx, Node<K, V> newNode) {
+        int binCount = 0;
+        Node<K, V> last = null;
+        for (Node<K, V> node = buckets[idx]; node != null; node = node.next) {
+            last = node;
+            binCount++;
+        }
+
+        addMapping(idx, last, buckets, newNode);
+        // failed conversion costs reflection and a tree build, so it is not repeated on every add
+        int length = binCount + 1;
+        if (length >= TREEIFY_THRESHOLD && (length & (length - 1)) == 0) {
+            treeifyBin(buckets, idx);
         }
-        return old;
     }
 
-    private V tryReplaceValue(Node<K, V> node, K key, V v) {
-        if (keyEqualTo(node, key)) {
-            V tmp = node.value;
-            node.value = v;
-            return tmp;
+    private void addToTree(int idx, Node<K, V> newNode) {
+        TreeBin<K, V> bin = (TreeBin<K, V>) buckets[idx];
+        if (!bin.accepts(newNode.key) || bin.hasTie(newNode.key)) {
+            // key can not be ordered with others, fall back to chain
+            buckets[idx] = bin.toChain();
+            addToChain(idx, newNode);
+            return;
+        }
+        bin.add(newNode);
+    }
+
+    private Node<K, V> removeFromChain(int idx, Object key) {
+        for (Node<K, V> node = buckets[idx], prev = null; node != null; prev = node, node = node.next) {
+            if (keyEqualTo(node, key)) {
+                if (prev == null) {
+                    buckets[idx] = node.next;
+                } else {
+                    prev.next = node.next;
+                }
+                node.next = null;
+                return node;
+            }
         }
         return null;
     }
 
-    private boolean hasNext(Node<K, V> node) {
-        return node != null && node.next != null;
+    private Node<K, V> removeFromTree(int idx, Object key) {
+        TreeBin<K, V> bin = (TreeBin<K, V>) buckets[idx];
+        Node<K, V> node = bin.find(key);
+        if (node != null) {
+            // node key is of bin class even if given key is not
+            bin.tree.remove(node.key);
+            if (bin.tree.size() <= UNTREEIFY_THRESHOLD) {
+                buckets[idx] = bin.toChain();
+            }
+        }
+        return node;
     }
 
-    private boolean keyEqualTo(Node<K, V> bucket, K key) {
+    /*
+     * Convert chain into tree bin if table is large enough, all keys are of one class comparable to itself
+     * and no two of them compare as equal.
+     */
+    private void treeifyBin(Node<K, V>[] buckets, int idx) {
+        Node<K, V> head = buckets[idx];
+        if (buckets.length < MIN_TREEIFY_CAPACITY || head == null || !isSelfComparable(head.key.getClass())) {
+            return;
+        }
+        Class<?> keyClass = head.key.getClass();
+        for (Node<K, V> node = head; node != null; node = node.next) {
+            if (node.key.getClass() != keyClass) {
+                return;
+            }
+        }
+
+        // chain is kept until tree is complete, since tie of keys cancels conversion
+        TreeBin<K, V> bin = new TreeBin<>(keyClass);
+        for (Node<K, V> node = head; node != null; node = node.next) {
+            if (bin.hasTie(node.key)) {
+                return;
+            }
+            bin.tree.add(node.key, node);
+        }
+        for (Node<K, V> node = head; node != null; ) {
+            Node<K, V> next = node.next;
+            node.next = null;
+            node = next;
+        }
+        buckets[idx] = bin;
+    }
+
+    /*
+     * Whether class implements Comparable of itself, as java.util.HashMap checks it.
+     * Keys of other comparable classes can not be compared with each other safely.
+     */
+    private static boolean isSelfComparable(Class<?> keyClass) {
+        if (keyClass == String.class) {
+            return true;
+        }
+        for (Type type : keyClass.getGenericInterfaces()) {
+            if (type instanceof ParameterizedType) {
+                ParameterizedType parameterized = (ParameterizedType) type;
+                Type[] arguments = parameterized.getActualTypeArguments();
+                if (parameterized.getRawType() == Comparable.class
+                        && arguments.length == 1 && arguments[0] == keyClass) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean keyEqualTo(Node<K, V> bucket, Object key) {
         return bucket.key.equals(key);
     }
 
@@ -112,34 +1148,98 @@ public class SCHashTable<K, V> {
         }
     }
 
-    @SuppressWarnings("unchecked")
     private void doRehash() {
+        rehash(buckets.length * 2);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void rehash(int capacity) {
         final Node<K, V>[] newBuckets = (Node<K, V>[])
-                Array.newInstance(Node.class, buckets.length * 2);
-        for (Node<K, V> node : buckets) {
-            if (node == null) {
-                continue;
+                Array.newInstance(Node.class, capacity);
+        for (int i = 0; i < buckets.length; i++) {
+            transfer(buckets[i], i, buckets.length, newBuckets);
+        }
+
+        buckets = newBuckets;
+        threshold = buckets.length * loadFactor;
+    }
+
+    /*
+     * Move bucket into new buckets of multiple size, its nodes go to buckets idx + k * length,
+     * e.g. idx or idx + length when size is doubled.
+     * Order of nodes in chain does not matter, so node is prepended to destination chain
+     * instead of walking to its tail. Long destination chains become tree bins again.
+     */
+    private void transfer(Node<K, V> node, int idx, int length, Node<K, V>[] newBuckets) {
+        int treeifyThreshold = TREEIFY_THRESHOLD;
+        if (node instanceof TreeBin) {
+            node = ((TreeBin<K, V>) node).toChain();
+            treeifyThreshold = UNTREEIFY_THRESHOLD + 1;
+        }
+
+        int count = 0;
+        while (node != null) {
+            Node<K, V> next = node.next;
+            final int newIdx = index(hash(node.key), newBuckets.length);
+            node.next = newBuckets[newIdx];
+            newBuckets[newIdx] = node;
+            node = next;
+            count++;
+        }
+
+        if (count >= treeifyThreshold) {
+            for (int newIdx = idx; newIdx < newBuckets.length; newIdx += length) {
+                treeifyIfLong(newBuckets, newIdx, treeifyThreshold);
             }
+        }
+    }
 
-            do {
-                Node<K, V> next = node.next;
-                node.next = null;
-                final int hash = hash(node.key);
-                final int idx = index(hash, newBuckets.length);
-                Node<K, V> newBucket = newBuckets[idx];
+    private void treeifyIfLong(Node<K, V>[] buckets, int idx, int threshold) {
+        int count = 0;
+        for (Node<K, V> node = buckets[idx]; node != null && count < threshold; node = node.next) {
+            count++;
+        }
+        if (count >= threshold) {
+            treeifyBin(buckets, idx);
+        }
+    }
 
-                while (hasNext(newBucket)) {
-                    newBucket = newBucket.next;
-                }
+    /*
+     * Incremental resize: new buckets become current ones at once, old buckets are moved
+     * by MIGRATION_STEP per operation. New capacity allows far more than old.length / MIGRATION_STEP
+     * additions before the next resize, so migration is normally finished before it.
+     */
+    @SuppressWarnings("unchecked")
+    private void startResize() {
+        if (oldBuckets != null) {
+            migrateStep(oldBuckets.length);
+        }
+        oldBuckets = buckets;
+        migrated = 0;
+        buckets = (Node<K, V>[]) Array.newInstance(Node.class, buckets.length * 2);
+        threshold = buckets.length * loadFactor;
+    }
 
-                addMapping(idx, newBucket, newBuckets, node);
+    private void migrateStep() {
+        migrateStep(MIGRATION_STEP);
+    }
 
-                node = next;
-            } while (node != null);
+    private void migrateStep(int count) {
+        int end = Math.min(migrated + count, oldBuckets.length);
+        for (; migrated < end; migrated++) {
+            migrateBucket(migrated);
+        }
+        if (migrated == oldBuckets.length) {
+            oldBuckets = null;
         }
+    }
 
-        buckets = newBuckets;
-        threshold = buckets.length * 0.75f;
+    private void migrateBucket(int idx) {
+        Node<K, V> node = oldBuckets[idx];
+        if (node != null) {
+            oldBuckets[idx] = null;
+            transfer(node, idx, oldBuckets.length, buckets);
+        }
     }
 
     private boolean needRehash() {
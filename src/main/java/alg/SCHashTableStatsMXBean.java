@@ -0,0 +1,41 @@
+package alg;
+
+/**
+ * Statistics of {@link SCHashTable} published through JMX, see {@link SCHashTable#stats()}.
+ */
+public interface SCHashTableStatsMXBean {
+
+    /**
+     * Slot i counts buckets with i nodes, the last slot counts all longer chains.
+     */
+    int[] getChainLengthHistogram();
+
+    long getLookups();
+
+    double getAverageLookupComparisons();
+
+    int getMaxLookupComparisons();
+
+    long getAdds();
+
+    double getAverageAddComparisons();
+
+    int getMaxAddComparisons();
+
+    long getRehashes();
+
+    long getRehashNanos();
+
+    long getMaxRehashNanos();
+
+    int getSize();
+
+    int getCapacity();
+
+    double getLoadFactor();
+
+    /**
+     * Load factor which triggers rehash.
+     */
+    double getMaxLoadFactor();
+}
@@ -1,29 +1,222 @@
-package java.alg;
+package alg;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * <a href="http://dynamicallyinvokable.blogspot.com/2016/10/dynamic-programming-in-5-easy-steps.html">Text Justification</a>
  */
 public class TextJustification {
 
+    /**
+     * Algorithm which finds line breaks, both give the same line breaks.
+     */
+    public enum Solver {
+        /**
+         * Reference DP, O(n * words per line).
+         */
+        DYNAMIC,
+        /**
+         * Monotone queue of candidate breaks, O(n log n) regardless of line width.
+         */
+        MONOTONE_QUEUE
+    }
+
+    // Cost of a line which holds single word longer than the width, such line can not be avoided.
+    static final long OVERFLOW_PENALTY = 10 * 1000 * 1000;
+
+    /**
+     * The widest line accepted. Cube of its slack is below 2^48, so costs of lines are summed in long.
+     */
+    public static final int MAX_WIDTH = 1 << 16;
+
+    // Cost of paragraph saturates here instead of overflowing, it takes 2^14 lines of maximum slack.
+    // Breaks of saturated paragraph are valid, but not necessarily optimal.
+    private static final long MAX_COST = Long.MAX_VALUE / 2;
+
+    private static final long INFEASIBLE = Long.MAX_VALUE;
+
+    // Number of paragraphs justified by single task of batch.
+    static final int BATCH_CHUNK = 256;
+
+    // Paragraph longer than this number of words gets its own DP arrays instead of the thread's scratch.
+    static final int MAX_SCRATCH_WORDS = 1 << 16;
+
+    // Paragraph longer than this number of words is justified by windows.
+    static final int WINDOW_WORDS = 1 << 14;
+
+    private static final char[] SPACES = new char[256];
+
+    static {
+        Arrays.fill(SPACES, ' ');
+    }
+
+    private final Solver solver;
+
+    private final ThreadLocal<Justify> scratch = ThreadLocal.withInitial(() -> new Justify(64));
+
+    public TextJustification() {
+        this(Solver.DYNAMIC);
+    }
+
+    public TextJustification(Solver solver) {
+        this.solver = solver;
+    }
+
     public List<String> fullJustify(String[] words, int maxWidth) {
-        return buildLines(words, maxWidth);
+        return buildLines(words, maxWidth, new Justify(words.length));
     }
 
+    /**
+     * Words of a paragraph with the width of its lines, an item of batch justification.
+     */
+    public static final class Paragraph {
+        private final String[] words;
+        private final int maxWidth;
+
+        public Paragraph(String[] words, int maxWidth) {
+            this.words = words;
+            this.maxWidth = maxWidth;
+        }
+    }
+
+    /**
+     * Justify paragraphs in parallel in common fork-join pool.
+     *
+     * @return lines of each paragraph, in order of paragraphs.
+     */
+    public List<List<String>> fullJustifyAll(Stream<Paragraph> paragraphs) {
+        return paragraphs.parallel()
+                .map(this::justifyWithScratch)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Justify paragraphs by tasks of given executor, each task takes a chunk of {@link #BATCH_CHUNK} paragraphs.
+     *
+     * @return lines of each paragraph, in order of paragraphs.
+     */
+    public List<List<String>> fullJustifyAll(List<Paragraph> paragraphs, Executor executor) {
+        int size = paragraphs.size();
+        List<List<String>> results = new ArrayList<>(Collections.nCopies(size, null));
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (int start = 0; start < size; start += BATCH_CHUNK) {
+            int from = start, to = Math.min(start + BATCH_CHUNK, size);
+            tasks.add(CompletableFuture.runAsync(() -> {
+                for (int i = from; i < to; i++) {
+                    results.set(i, justifyWithScratch(paragraphs.get(i)));
+                }
+            }, executor));
+        }
+
+        try {
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    /*
+     * Each thread reuses its own DP arrays, they keep the size of the longest paragraph justified by the thread.
+     * Huge paragraph is justified with arrays of its own, so pool threads keep at most 2 * MAX_SCRATCH_WORDS words
+     * of scratch (about 32 bytes per word) after the batch.
+     */
+    private List<String> justifyWithScratch(Paragraph paragraph) {
+        Justify justify = paragraph.words.length <= MAX_SCRATCH_WORDS
+                ? scratch.get() : new Justify(paragraph.words.length);
+        return buildLines(paragraph.words, paragraph.maxWidth, justify);
+    }
+
+    /**
+     * DP state over word lengths: prefix sums of lengths, the least badness of words from i to the end
+     * and the first word of the next line in the best solution for them.
+     */
     static class Justify {
-        final String[] words;
-        final int[] mem;
-        final int[] parentPointers;
+        int count;
+        // prefix[i] - total length of words before i
+        long[] prefix;
+        long[] mem;
+        int[] parentPointers;
+        // scratch of word lengths and of monotone queue solver
+        int[] lengths;
+        int[] candidates;
+        int[] starts;
+
+        Justify(int capacity) {
+            allocate(capacity);
+        }
 
-        Justify(String[] _words) {
-            words = _words;
-            mem = new int[ _words.length ];
-            parentPointers = new int[ _words.length ];
-            Arrays.fill(mem, -1);
+        Justify(int[] lengths) {
+            this(lengths, lengths.length);
+        }
+
+        Justify(int[] lengths, int count) {
+            this(count);
+            load(lengths, count);
+        }
+
+        /*
+         * Grow arrays to hold given number of words, arrays are reused by subsequent loads.
+         */
+        void ensureCapacity(int capacity) {
+            if (parentPointers.length < capacity) {
+                allocate(Math.max(capacity, parentPointers.length * 2));
+            }
+        }
+
+        private void allocate(int capacity) {
+            prefix = new long[capacity + 1];
+            mem = new long[capacity + 1];
+            parentPointers = new int[capacity];
+            lengths = new int[capacity];
+            candidates = new int[capacity + 1];
+            starts = new int[capacity + 1];
+        }
+
+        void load(int[] lengths, int count) {
+            ensureCapacity(count);
+            this.count = count;
+            for (int i = 0; i < count; i++) {
+                prefix[i + 1] = prefix[i] + lengths[i];
+            }
+        }
+
+        void load(String[] words) {
+            ensureCapacity(words.length);
+            for (int i = 0; i < words.length; i++) {
+                lengths[i] = words[i].length();
+            }
+            load(lengths, words.length);
+        }
+
+        /*
+         * Length of line with words [from, to) separated by single spaces.
+         */
+        final long lineLength(int from, int to) {
+            return prefix[to] - prefix[from] + (to - from - 1);
         }
 
         @Override
@@ -35,79 +228,541 @@ public class TextJustification {
         }
     }
 
-    private List<String> buildLines(String[] words, int maxWidth) {
-        Justify j = new Justify(words);
-        calcJustify(j, maxWidth, 0);
+    /**
+     * Justify text read from input and write padded lines to output. Words are separated by whitespace,
+     * paragraphs by blank lines. Each paragraph is justified separately, an empty line is written between them.
+     * Spaces of a line are distributed evenly, extra ones go to the leftmost gaps. The last line of paragraph
+     * and lines of single word are aligned left, word wider than the line is written as is.
+     * <p>
+     * Only the current paragraph is kept in memory. Paragraph longer than {@link #WINDOW_WORDS} words is
+     * justified by windows: breaks are optimal within the window, lines from its first half are written,
+     * and the rest of words start the next window. So memory is bounded by the window and the longest word.
+     * Output is flushed at the end, neither stream is closed.
+     */
+    public void justify(Reader in, Writer out, int maxWidth) throws IOException {
+        CharParagraphWriter writer = new CharParagraphWriter(out, maxWidth);
+        char[] buffer = new char[8192];
+        for (int read; (read = in.read(buffer)) != -1; ) {
+            for (int k = 0; k < read; k++) {
+                char c = buffer[k];
+                if (Character.isWhitespace(c)) {
+                    writer.whitespace(c == '\n');
+                } else {
+                    writer.append(c);
+                }
+            }
+        }
+        writer.finish();
+        out.flush();
+    }
+
+    /**
+     * Justify text of channel, decoded with given charset, and write encoded lines into output channel.
+     *
+     * @see #justify(Reader, Writer, int)
+     */
+    public void justify(ReadableByteChannel in, WritableByteChannel out, int maxWidth, Charset charset) throws IOException {
+        Reader reader = Channels.newReader(in, charset.newDecoder(), -1);
+        Writer writer = Channels.newWriter(out, charset.newEncoder(), -1);
+        justify(reader, writer, maxWidth);
+    }
+
+    /**
+     * Justify UTF-8 text of the file, which is memory mapped instead of being read. Words are ranges of mapped
+     * bytes, their lengths are counted in UTF-16 chars like {@link String#length()} of the other methods,
+     * and output lines are written by copying these ranges and padding, no text is decoded.
+     * Only ASCII whitespace separates words. File is limited by 2GB of single mapping.
+     *
+     * @see #justify(Reader, Writer, int)
+     */
+    public void justify(Path input, WritableByteChannel out, int maxWidth) throws IOException {
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("file does not fit into single mapping: " + size + " bytes");
+            }
+            MappedByteBuffer text = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            MappedParagraphWriter writer = new MappedParagraphWriter(text, out, maxWidth);
+            for (int position = 0; position < size; position++) {
+                byte b = text.get(position);
+                if (b == ' ' || b == '\n' || b == '\t' || b == '\r' || b == '\f' || b == 0x0B) {
+                    writer.whitespace(b == '\n');
+                } else {
+                    writer.append(position, b);
+                }
+            }
+            writer.finish();
+            writer.flush();
+        }
+    }
+
+    /**
+     * Splits words into paragraphs and windows and writes their padded lines.
+     * Subclass keeps text of words and writes it, lengths of words are kept here.
+     */
+    private abstract class ParagraphWriter {
+        private final int maxWidth;
+        private final Justify justify = new Justify(64);
+        int[] lengths = new int[64];
+        int count;
+        boolean inWord;
+        // newlines after the last word of paragraph
+        private int newlines;
+        // number of words of the paragraph written already
+        private long written;
+        private boolean firstParagraph = true;
+
+        ParagraphWriter(int maxWidth) {
+            checkWidth(maxWidth);
+            this.maxWidth = maxWidth;
+        }
+
+        // text of word i
+        abstract void writeWord(int i) throws IOException;
+
+        abstract void writeSpaces(long count) throws IOException;
+
+        abstract void writeNewline() throws IOException;
+
+        // record word which is read now, its length is given to addWord
+        abstract void endWord();
+
+        // move words [n, count) to the beginning, lengths are moved already
+        abstract void removeWords(int n);
+
+        final void startWord() {
+            newlines = 0;
+            inWord = true;
+        }
+
+        final void addWord(int length) {
+            if (count == lengths.length) {
+                lengths = Arrays.copyOf(lengths, count * 2);
+            }
+            lengths[count++] = length;
+        }
+
+        final void whitespace(boolean newline) throws IOException {
+            if (inWord) {
+                inWord = false;
+                endWord();
+                if (count >= WINDOW_WORDS) {
+                    writeParagraph(false);
+                }
+            }
+            if (newline && ++newlines == 2 && count > 0) {
+                writeParagraph(true);
+            }
+        }
+
+        final void finish() throws IOException {
+            if (inWord) {
+                inWord = false;
+                endWord();
+            }
+            if (count > 0) {
+                writeParagraph(true);
+            }
+        }
+
+        /*
+         * Write lines of buffered words. Whole paragraph is written if it is complete, otherwise
+         * lines which start in the first half of the window. Written words are removed.
+         */
+        private void writeParagraph(boolean complete) throws IOException {
+            if (!firstParagraph && written == 0) {
+                writeNewline();
+            }
+            firstParagraph = false;
+            justify.load(lengths, count);
+            calcJustify(justify, maxWidth, solver);
+
+            int limit = complete ? count : count / 2;
+            int from = 0;
+            while (from < limit) {
+                int next = justify.parentPointers[from];
+                writeLine(from, next, complete && next == count);
+                from = next;
+            }
+
+            System.arraycopy(lengths, from, lengths, 0, count - from);
+            removeWords(from);
+            count -= from;
+            written = complete ? 0 : written + from;
+        }
+
+        private void writeLine(int from, int to, boolean lastLine) throws IOException {
+            int gaps = to - from - 1;
+            long letters = 0;
+            for (int i = from; i < to; i++) {
+                letters += lengths[i];
+            }
+            long spaces = maxWidth - letters;
+            boolean alignLeft = lastLine || gaps == 0;
+
+            for (int i = from; i < to; i++) {
+                writeWord(i);
+                if (i == to - 1) {
+                    break;
+                }
+                writeSpaces(alignLeft ? 1 : spaces / gaps + (i - from < spaces % gaps ? 1 : 0));
+            }
+            if (alignLeft) {
+                writeSpaces(spaces - gaps);
+            }
+            writeNewline();
+        }
+    }
+
+    /**
+     * Words as ranges of shared char array, written to {@link Writer}.
+     */
+    private final class CharParagraphWriter extends ParagraphWriter {
+        private final Writer out;
+        private char[] chars = new char[1024];
+        private int length;
+        private int[] starts = new int[64];
+        // start of the word which is being read
+        private int wordStart;
+
+        CharParagraphWriter(Writer out, int maxWidth) {
+            super(maxWidth);
+            this.out = out;
+        }
+
+        void append(char c) {
+            if (!inWord) {
+                startWord();
+                wordStart = length;
+            }
+            if (length == chars.length) {
+                chars = Arrays.copyOf(chars, chars.length * 2);
+            }
+            chars[length++] = c;
+        }
+
+        @Override
+        void endWord() {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+            }
+            starts[count] = wordStart;
+            addWord(length - wordStart);
+        }
+
+        @Override
+        void removeWords(int n) {
+            int offset = n < count ? starts[n] : (inWord ? wordStart : length);
+            System.arraycopy(chars, offset, chars, 0, length - offset);
+            length -= offset;
+            wordStart -= offset;
+            for (int i = n; i < count; i++) {
+                starts[i - n] = starts[i] - offset;
+            }
+        }
+
+        @Override
+        void writeWord(int i) throws IOException {
+            out.write(chars, starts[i], lengths[i]);
+        }
+
+        @Override
+        void writeSpaces(long count) throws IOException {
+            while (count > 0) {
+                int chunk = (int) Math.min(count, SPACES.length);
+                out.write(SPACES, 0, chunk);
+                count -= chunk;
+            }
+        }
+
+        @Override
+        void writeNewline() throws IOException {
+            out.write('\n');
+        }
+    }
+
+    /**
+     * Words as ranges of mapped bytes, copied to channel through a buffer.
+     */
+    private final class MappedParagraphWriter extends ParagraphWriter {
+        private final ByteBuffer text;
+        private final WritableByteChannel out;
+        private final byte[] buffer = new byte[1 << 16];
+        private int buffered;
+        private int[] offsets = new int[64];
+        private int[] sizes = new int[64];
+        // the word which is being read
+        private int wordStart;
+        private int wordEnd;
+        // length of the word in UTF-16 chars
+        private int chars;
+
+        MappedParagraphWriter(ByteBuffer text, WritableByteChannel out, int maxWidth) {
+            super(maxWidth);
+            this.text = text;
+            this.out = out;
+        }
+
+        void append(int position, byte b) {
+            if (!inWord) {
+                startWord();
+                wordStart = position;
+                chars = 0;
+            }
+            wordEnd = position + 1;
+            // continuation bytes of UTF-8 are 10xxxxxx, 4-byte sequence 11110xxx is a surrogate pair
+            if ((b & 0xF8) == 0xF0) {
+                chars += 2;
+            } else if ((b & 0xC0) != 0x80) {
+                chars++;
+            }
+        }
+
+        @Override
+        void endWord() {
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+                sizes = Arrays.copyOf(sizes, count * 2);
+            }
+            offsets[count] = wordStart;
+            sizes[count] = wordEnd - wordStart;
+            addWord(chars);
+        }
+
+        @Override
+        void removeWords(int n) {
+            System.arraycopy(offsets, n, offsets, 0, count - n);
+            System.arraycopy(sizes, n, sizes, 0, count - n);
+        }
+
+        @Override
+        void writeWord(int i) throws IOException {
+            int offset = offsets[i], size = sizes[i];
+            while (size > 0) {
+                if (buffered == buffer.length) {
+                    flush();
+                }
+                int chunk = Math.min(size, buffer.length - buffered);
+                text.position(offset);
+                text.get(buffer, buffered, chunk);
+                buffered += chunk;
+                offset += chunk;
+                size -= chunk;
+            }
+        }
+
+        @Override
+        void writeSpaces(long count) throws IOException {
+            while (count > 0) {
+                if (buffered == buffer.length) {
+                    flush();
+                }
+                int chunk = (int) Math.min(count, buffer.length - buffered);
+                Arrays.fill(buffer, buffered, buffered + chunk, (byte) ' ');
+                buffered += chunk;
+                count -= chunk;
+            }
+        }
+
+        @Override
+        void writeNewline() throws IOException {
+            if (buffered == buffer.length) {
+                flush();
+            }
+            buffer[buffered++] = '\n';
+        }
+
+        void flush() throws IOException {
+            ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, buffered);
+            while (bytes.hasRemaining()) {
+                out.write(bytes);
+            }
+            buffered = 0;
+        }
+    }
+
+    private List<String> buildLines(String[] words, int maxWidth, Justify j) {
+        j.load(words);
+        calcJustify(j, maxWidth, solver);
 
         List<String> lines = new ArrayList<>();
+        StringBuilder line = new StringBuilder();
         int from = 0;
 
-        while(from < words.length) {
+        while (from < words.length) {
             int next = j.parentPointers[from];
 
-            String line = Arrays.stream(words)
-                    .skip(from)
-                    .limit(next - from)
-                    .collect(Collectors.joining(" "));
+            line.setLength(0);
+            for (int i = from; i < next; i++) {
+                if (i > from) {
+                    line.append(' ');
+                }
+                line.append(words[i]);
+            }
 
-            lines.add(line);
+            lines.add(line.toString());
             from = next;
         }
 
         return lines;
     }
 
-    private static int calcJustify(Justify justify, int maxWidth, int initStep) {
-        if (initStep == justify.words.length) {
-            return 0;
+    static void calcJustify(Justify justify, int maxWidth, Solver solver) {
+        if (solver == Solver.MONOTONE_QUEUE) {
+            calcJustifyMonotone(justify, maxWidth);
+        } else {
+            calcJustify(justify, maxWidth);
+        }
+    }
+
+    /*
+     * Bottom-up DP: mem[i] = min over next of badness(i, next) + mem[next].
+     * Candidate lines are extended word by word and the scan stops at the first one which does not fit,
+     * so each cell costs O(words per line). Ties go to the shortest line.
+     */
+    static void calcJustify(Justify justify, int maxWidth) {
+        checkWidth(maxWidth);
+        int count = justify.count;
+        justify.mem[count] = 0;
+
+        for (int initStep = count - 1; initStep >= 0; initStep--) {
+            long minBadness = Long.MAX_VALUE;
+            int best = initStep + 1;
+            for (int nextStep = initStep + 1; nextStep <= count; nextStep++) {
+                long badness = badness(justify, initStep, nextStep, maxWidth);
+                if (badness < 0) {
+                    break;
+                }
+                long nextBadness = addCost(badness, justify.mem[nextStep]);
+                if (minBadness > nextBadness) {
+                    //save best choice
+                    best = nextStep;
+                    minBadness = nextBadness;
+                }
+            }
+
+            // save solution
+            justify.parentPointers[initStep] = best;
+            justify.mem[initStep] = minBadness;
         }
+    }
 
-        if (justify.mem[initStep] != -1) {
-            return justify.mem[initStep];
+    /*
+     * Same recurrence as calcJustify. Badness is a convex function of line length, and infinite when the line
+     * does not fit, so it satisfies the quadrangle inequality and the best next line start never moves right
+     * when line start moves left. Words wider than the line are alone in their lines anyway, they split words
+     * into segments solved independently, from the last one.
+     */
+    static void calcJustifyMonotone(Justify justify, int maxWidth) {
+        checkWidth(maxWidth);
+        int count = justify.count;
+        justify.mem[count] = 0;
+        int end = count;
+        for (int k = count - 1; k >= -1; k--) {
+            if (k < 0 || justify.lineLength(k, k + 1) > maxWidth) {
+                solveSegment(justify, maxWidth, k + 1, end, justify.candidates, justify.starts);
+                if (k >= 0) {
+                    justify.mem[k] = addCost(OVERFLOW_PENALTY, justify.mem[k + 1]);
+                    justify.parentPointers[k] = k + 1;
+                }
+                end = k;
+            }
         }
+    }
 
-        int minBadness = Integer.MAX_VALUE;
-        for (int nextStep = initStep + 1; nextStep <= justify.words.length; nextStep++) {
+    /*
+     * Words [from, end), mem[end] is known. Line starts are visited by distance from the end: x = end - i,
+     * every visited start becomes candidate line end for the next ones. Deque keeps candidates which are
+     * the best for some of the remaining starts, each with the first distance where it becomes the best.
+     * A newer candidate beats older ones from some distance on, the distance is found by binary search.
+     * Ties go to the newer candidate, which gives the shorter line, as in the reference DP.
+     */
+    private static void solveSegment(Justify justify, int maxWidth, int from, int end, int[] candidates, int[] starts) {
+        int last = end - from;
+        if (last == 0) {
+            return;
+        }
+        int head = 0, tail = 0;
+        candidates[tail] = 0;
+        starts[tail++] = 1;
 
-            int badness = badness(justify.words, initStep, nextStep, maxWidth);
-            int nextMinBadness = calcJustify(justify, maxWidth, nextStep);
-            int nextBadness = badness + nextMinBadness;
-            if (minBadness > nextBadness) {
-                //save best choice
-                System.out.println("minBadness=" + minBadness + ", initStep=" + initStep + ", nextStep=" + nextStep);
-                justify.parentPointers[initStep] = nextStep;
-                minBadness = nextBadness;
+        for (int x = 1; x <= last; x++) {
+            while (tail - head > 1 && starts[head + 1] <= x) {
+                head++;
+            }
+            int best = candidates[head];
+            justify.mem[end - x] = cost(justify, maxWidth, end, best, x);
+            justify.parentPointers[end - x] = end - best;
+            if (x == last) {
+                break;
             }
 
+            while (tail > head) {
+                int position = Math.max(starts[tail - 1], x + 1);
+                if (cost(justify, maxWidth, end, x, position) > cost(justify, maxWidth, end, candidates[tail - 1], position)) {
+                    break;
+                }
+                tail--;
+            }
+            if (tail == head) {
+                candidates[tail] = x;
+                starts[tail++] = x + 1;
+                continue;
+            }
+
+            int lo = Math.max(starts[tail - 1], x + 1), hi = last + 1;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (cost(justify, maxWidth, end, x, mid) <= cost(justify, maxWidth, end, candidates[tail - 1], mid)) {
+                    hi = mid;
+                } else {
+                    lo = mid + 1;
+                }
+            }
+            if (lo <= last) {
+                candidates[tail] = x;
+                starts[tail++] = lo;
+            }
         }
+    }
 
-        // save solution
-        justify.mem[initStep] = minBadness;
-        return minBadness;
+    /*
+     * Cost of words from distance x to the end, when the first line ends at distance candidate.
+     */
+    private static long cost(Justify justify, int maxWidth, int end, int candidate, int x) {
+        long badness = badness(justify, end - x, end - candidate, maxWidth);
+        return badness < 0 ? INFEASIBLE : addCost(badness, justify.mem[end - candidate]);
+    }
+
+    /*
+     * Both costs are at most MAX_COST, so their sum fits into long before it is clamped.
+     */
+    private static long addCost(long a, long b) {
+        return Math.min(a + b, MAX_COST);
+    }
+
+    private static void checkWidth(int maxWidth) {
+        if (maxWidth <= 0 || maxWidth > MAX_WIDTH) {
+            throw new IllegalArgumentException("width must be in [1, " + MAX_WIDTH + "]: " + maxWidth);
+        }
     }
 
     /**
      * badness of a line is equal to:
      *   ( lengthOfLine - numverOfWords_WithSpacesBetweenWords ) ^ 3
+     * Last line costs nothing if it fits, single word wider than line costs {@link #OVERFLOW_PENALTY}.
+     *
+     * @return badness or -1 if line does not fit and is not the single word.
      */
-    private static int badness(String[] words, int from, int to, int width) {
-        int spaces = to - from - 1;
-
-        if (to == words.length) //don't care about last line
-            return 0;
-
-
-        int wordsLen = Arrays.stream(words)
-                .skip(from)
-                .limit(to - from)
-                .mapToInt(String::length)
-                .sum();
-
-        if (wordsLen + spaces > width) {
-            return 10*1000*1000;
+    static long badness(Justify justify, int from, int to, int width) {
+        long slack = width - justify.lineLength(from, to);
+        if (slack < 0) {
+            return to - from == 1 ? OVERFLOW_PENALTY : -1;
         }
+        if (to == justify.count) //don't care about last line
+            return 0;
 
-        return (int) Math.pow(width - wordsLen - spaces, 3);
+        return slack * slack * slack;
     }
 
 
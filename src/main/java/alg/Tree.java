@@ -13,4 +13,11 @@ public interface Tree<K,V> {
      */
     void add(K key, V val);
 
+    /**
+     * Check if tree contains given key.
+     * @param key key
+     * @return {@code true} if key was added into tree.
+     */
+    boolean contains(Object key);
+
 }
@@ -0,0 +1,73 @@
+package alg;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+public class BPlusTreeTest {
+    BPlusTree<Integer, Object> tree;
+
+    private static final int VALUE = 1;
+
+    @BeforeEach
+    public void init() {
+        tree = new BPlusTree<>(Comparator.<Integer>naturalOrder(), 4);
+    }
+
+    @Test
+    public void newTreeIsEmpty() {
+        assertTrue(tree.isEmpty());
+        assertFalse(tree.contains(1));
+        assertFalse(tree.keysSet().iterator().hasNext());
+    }
+
+    @Test
+    public void excludeDuplicateAdds() {
+        tree.add(50, VALUE);
+        tree.add(50, "other");
+        tree.add(1, VALUE);
+        assertEquals(2, tree.size());
+        assertEquals("other", tree.get(50));
+        assertNull(tree.get(2));
+    }
+
+    @Test
+    public void keysAreOrdered() {
+        tree.add(12, VALUE);
+        tree.add(10, VALUE);
+        tree.add(4, VALUE);
+        tree.add(42, VALUE);
+        tree.add(11, VALUE);
+        tree.add(55, VALUE);
+
+        assertEquals(Arrays.asList(4, 10, 11, 12, 42, 55), new ArrayList<>(tree.keysSet()));
+    }
+
+    @Test
+    public void randomAddsMatchTreeMap() {
+        Random random = new Random(5);
+        TreeMap<Integer, Object> expected = new TreeMap<>();
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(30000);
+            tree.add(key, i);
+            expected.put(key, i);
+        }
+
+        assertEquals(expected.size(), tree.size());
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(tree.keysSet()));
+        for (int key = 0; key < 30000; key++) {
+            assertEquals(expected.get(key), tree.get(key));
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package alg;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class BoundedCacheTest {
+
+    @Test
+    public void lruEvictsLeastRecentlyUsed() {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(3, BoundedCache.Eviction.LRU);
+        cache.add(1, "1");
+        cache.add(2, "2");
+        cache.add(3, "3");
+        assertEquals("1", cache.get(1));
+        cache.add(4, "4");
+
+        assertEquals(3, cache.size());
+        assertFalse(cache.hasKey(2));
+        assertTrue(cache.hasKey(1));
+        assertTrue(cache.hasKey(3));
+        assertTrue(cache.hasKey(4));
+    }
+
+    @Test
+    public void weightIsBounded() {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(10, (k, v) -> v.length(), BoundedCache.Eviction.LRU);
+        cache.add(1, "aaaa");
+        cache.add(2, "bbbb");
+        assertEquals(8, cache.weightedSize());
+        cache.add(1, "aaaaaaa");
+        assertEquals(7, cache.weightedSize());
+        assertFalse(cache.hasKey(2));
+
+        cache.add(3, "cccccccccccc");
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.weightedSize());
+    }
+
+    @Test
+    public void entriesAreSnapshots() {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(10, (k, v) -> v.length(), BoundedCache.Eviction.LRU);
+        cache.add(1, "aaaa");
+        cache.add(2, "bbbb");
+
+        Map<Integer, String> entries = new HashMap<>();
+        for (Map.Entry<Integer, String> entry : cache.entrySet()) {
+            entries.put(entry.getKey(), entry.getValue());
+            assertThrows(UnsupportedOperationException.class, () -> entry.setValue("cc"));
+        }
+        assertEquals(2, entries.size());
+        assertEquals("aaaa", entries.get(1));
+        assertEquals(8, cache.weightedSize());
+    }
+
+    @Test
+    public void getOrComputeLoadsOnce() {
+        for (BoundedCache.Eviction eviction : BoundedCache.Eviction.values()) {
+            BoundedCache<Integer, String> cache = new BoundedCache<>(100, eviction);
+            AtomicInteger loads = new AtomicInteger();
+            for (int i = 0; i < 10; i++) {
+                assertEquals("7", cache.getOrCompute(7, k -> {
+                    loads.incrementAndGet();
+                    return String.valueOf(k);
+                }));
+            }
+            assertEquals(1, loads.get());
+            assertNull(cache.getOrCompute(8, k -> null));
+            assertFalse(cache.hasKey(8));
+        }
+    }
+
+    @Test
+    public void sizeStaysBounded() {
+        for (BoundedCache.Eviction eviction : BoundedCache.Eviction.values()) {
+            BoundedCache<Integer, Integer> cache = new BoundedCache<>(500, eviction);
+            for (int i = 0; i < 100000; i++) {
+                int key = (i * 7919) % 3000;
+                if (i % 5 == 0) {
+                    cache.remove(key);
+                } else {
+                    cache.getOrCompute(key, k -> k);
+                }
+                assertTrue(cache.size() <= 500);
+                assertEquals(cache.size(), cache.weightedSize());
+            }
+        }
+    }
+
+    @Test
+    public void tinyLfuKeepsFrequentKeysDuringScan() {
+        BoundedCache<Integer, Integer> tinyLfu = new BoundedCache<>(100, BoundedCache.Eviction.W_TINY_LFU);
+        BoundedCache<Integer, Integer> lru = new BoundedCache<>(100, BoundedCache.Eviction.LRU);
+        for (int round = 0; round < 20; round++) {
+            for (int key = 0; key < 50; key++) {
+                tinyLfu.getOrCompute(key, k -> k);
+                lru.getOrCompute(key, k -> k);
+            }
+        }
+        for (int key = 1000; key < 2000; key++) {
+            tinyLfu.getOrCompute(key, k -> k);
+            lru.getOrCompute(key, k -> k);
+        }
+
+        int tinyLfuHot = 0, lruHot = 0;
+        for (int key = 0; key < 50; key++) {
+            tinyLfuHot += tinyLfu.hasKey(key) ? 1 : 0;
+            lruHot += lru.hasKey(key) ? 1 : 0;
+        }
+        assertEquals(50, tinyLfuHot);
+        assertEquals(0, lruHot);
+    }
+
+    @Test
+    public void weightedSketchGrowsWithEntries() {
+        // 64MB of values, sketch sized by weight would take 2^24 longs up front
+        BoundedCache<Integer, byte[]> cache = new BoundedCache<>(64 << 20, (k, v) -> v.length,
+                BoundedCache.Eviction.W_TINY_LFU);
+        assertTrue(cache.sketchWidth() <= 16);
+
+        for (int round = 0; round < 20; round++) {
+            for (int key = 0; key < 50; key++) {
+                cache.getOrCompute(key, k -> new byte[1 << 10]);
+            }
+        }
+        for (int key = 1000; key < 3000; key++) {
+            cache.getOrCompute(key, k -> new byte[1 << 15]);
+        }
+
+        assertTrue(cache.sketchWidth() >= cache.size());
+        assertTrue(cache.sketchWidth() <= 4 * cache.size());
+        assertTrue(cache.weightedSize() <= 64 << 20);
+        for (int key = 0; key < 50; key++) {
+            assertTrue(cache.hasKey(key));
+        }
+    }
+}
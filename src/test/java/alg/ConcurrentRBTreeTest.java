@@ -0,0 +1,107 @@
+package alg;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+public class ConcurrentRBTreeTest {
+    ConcurrentRBTree<Integer, Object> tree;
+
+    private static final int VALUE = 1;
+
+    @BeforeEach
+    public void init() {
+        tree = new ConcurrentRBTree<>(Comparator.<Integer>naturalOrder());
+    }
+
+    @Test
+    public void keysAreOrdered() {
+        tree.add(12, VALUE);
+        tree.add(10, VALUE);
+        tree.add(4, VALUE);
+        tree.add(42, VALUE);
+        tree.add(12, VALUE);
+
+        assertEquals(4, tree.size());
+        assertEquals(Arrays.asList(4, 10, 12, 42), new ArrayList<>(tree.keysSet()));
+        assertTrue(tree.contains(42));
+        assertFalse(tree.contains(11));
+    }
+
+    @Test
+    public void readersSeeConsistentTreeWhileWriting() throws InterruptedException {
+        final int stable = 1000;
+        for (int i = 0; i < stable; i++) {
+            tree.add(i * 2, VALUE);
+        }
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<String> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int w = 0; w < 2; w++) {
+            final int writer = w;
+            threads.add(new Thread(() -> {
+                await(start);
+                for (int i = 0; i < 20000; i++) {
+                    tree.add(stable * 2 + i * 2 + writer, VALUE);
+                }
+            }));
+        }
+        for (int r = 0; r < 4; r++) {
+            threads.add(new Thread(() -> {
+                await(start);
+                for (int round = 0; round < 50; round++) {
+                    for (int i = 0; i < stable; i++) {
+                        if (!tree.contains(i * 2) || tree.contains(i * 2 + 1)) {
+                            failure.compareAndSet(null, "wrong contains for " + i * 2);
+                        }
+                    }
+                    Integer previous = null;
+                    int count = 0;
+                    for (Integer key : tree.keysSet()) {
+                        if (previous != null && previous >= key) {
+                            failure.compareAndSet(null, "not ascending: " + previous + ", " + key);
+                        }
+                        previous = key;
+                        count++;
+                    }
+                    if (count < stable) {
+                        failure.compareAndSet(null, "missed keys: " + count);
+                    }
+                }
+            }));
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertNull(failure.get());
+        assertEquals(stable + 40000, tree.size());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
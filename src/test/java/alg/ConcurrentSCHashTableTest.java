@@ -0,0 +1,103 @@
+package alg;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class ConcurrentSCHashTableTest {
+
+    private ConcurrentSCHashTable<Integer, Object> table;
+
+    @BeforeEach
+    public void init() {
+        table = new ConcurrentSCHashTable<>();
+    }
+
+    @Test
+    void addSameReplace() {
+        assertNull(table.add(10, 10));
+        assertEquals(10, table.add(10, 11));
+        assertEquals(11, table.get(10));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    public void addWithResize() {
+        for (int i = 0; i < 150; i++) {
+            table.add(i, i);
+        }
+
+        assertEquals(150, table.size());
+        for (int i = 0; i < 150; i++) {
+            assertEquals(i, table.get(i));
+        }
+        assertFalse(table.hasKey(150));
+    }
+
+    @Test
+    public void concurrentWritersAndReaders() throws InterruptedException {
+        final int stable = 1000;
+        final int perWriter = 50000;
+        for (int i = 0; i < stable; i++) {
+            table.add(-i - 1, i);
+        }
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicReference<String> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < 4; w++) {
+            final int writer = w;
+            threads.add(new Thread(() -> {
+                await(start);
+                for (int i = 0; i < perWriter; i++) {
+                    int key = i * 4 + writer;
+                    table.add(key, key);
+                    if (!table.hasKey(key)) {
+                        failure.compareAndSet(null, "lost own key " + key);
+                    }
+                }
+            }));
+        }
+        for (int r = 0; r < 2; r++) {
+            threads.add(new Thread(() -> {
+                await(start);
+                for (int round = 0; round < 100; round++) {
+                    for (int i = 0; i < stable; i++) {
+                        if (!Integer.valueOf(i).equals(table.get(-i - 1))) {
+                            failure.compareAndSet(null, "lost stable key " + (-i - 1));
+                        }
+                    }
+                }
+            }));
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertNull(failure.get());
+        assertEquals(stable + 4 * perWriter, table.size());
+        for (int key = 0; key < 4 * perWriter; key++) {
+            assertEquals(key, table.get(key));
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package alg;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+public class IntRBTreeTest {
+    IntRBTree<Object> tree;
+
+    @BeforeEach
+    public void init() {
+        tree = new IntRBTree<>(2);
+    }
+
+    @Test
+    public void newTreeIsEmpty() {
+        assertTrue(tree.isEmpty());
+        assertFalse(tree.keyIterator().hasNext());
+    }
+
+    @Test
+    public void excludeDuplicateAdds() {
+        tree.add(50, "a");
+        tree.add(50, "b");
+        tree.add(Integer.valueOf(1), "c");
+        assertEquals(2, tree.size());
+        assertEquals("b", tree.get(50));
+        assertNull(tree.get(2));
+    }
+
+    @Test
+    public void keysAreOrderedAndContained() {
+        Random random = new Random(42);
+        TreeMap<Integer, Object> expected = new TreeMap<>();
+        for (int i = 0; i < 5000; i++) {
+            int key = random.nextInt(10000) - 5000;
+            tree.add(key, String.valueOf(i));
+            expected.put(key, String.valueOf(i));
+        }
+
+        assertEquals(expected.size(), tree.size());
+        List<Integer> keys = new ArrayList<>();
+        for (PrimitiveIterator.OfInt it = tree.keyIterator(); it.hasNext(); ) {
+            keys.add(it.nextInt());
+        }
+        assertEquals(new ArrayList<>(expected.keySet()), keys);
+
+        for (int key = -5000; key < 5000; key++) {
+            assertEquals(expected.containsKey(key), tree.contains(key));
+            assertEquals(expected.get(key), tree.get(key));
+        }
+    }
+}
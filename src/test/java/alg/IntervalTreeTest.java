@@ -0,0 +1,73 @@
+package alg;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+public class IntervalTreeTest {
+    IntervalTree<Integer, Object> tree;
+
+    private static final int VALUE = 1;
+
+    @BeforeEach
+    public void init() {
+        tree = new IntervalTree<>(Comparator.<Integer>naturalOrder());
+    }
+
+    @Test
+    public void overlappingIsClosedOnBothEnds() {
+        tree.add(1, 3, VALUE);
+        tree.add(5, 8, VALUE);
+        tree.add(10, 12, VALUE);
+        tree.add(2, 20, VALUE);
+
+        assertEquals(Arrays.asList(new IntervalTree.Interval<>(2, 20), new IntervalTree.Interval<>(5, 8)),
+                tree.overlapping(4, 5));
+        assertEquals(Collections.singletonList(new IntervalTree.Interval<>(1, 3)), tree.overlapping(0, 1));
+        assertEquals(Collections.emptyList(), tree.overlapping(21, 30));
+        assertEquals(4, tree.overlapping(0, 100).size());
+    }
+
+    @Test
+    public void rejectsReversedInterval() {
+        assertThrows(IllegalArgumentException.class, () -> tree.add(5, 1, VALUE));
+    }
+
+    @Test
+    public void overlappingMatchesScan() {
+        Random random = new Random(11);
+        List<IntervalTree.Interval<Integer>> all = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            int start = random.nextInt(100000);
+            IntervalTree.Interval<Integer> interval = new IntervalTree.Interval<>(start, start + random.nextInt(500));
+            if (!tree.contains(interval)) {
+                all.add(interval);
+            }
+            tree.add(interval, VALUE);
+        }
+        all.sort(IntervalTree.Interval.comparator(Comparator.<Integer>naturalOrder()));
+        RBTreeTest.assertValid(tree);
+
+        for (int i = 0; i < 200; i++) {
+            int from = random.nextInt(100000);
+            int to = from + random.nextInt(2000);
+            List<IntervalTree.Interval<Integer>> expected = new ArrayList<>();
+            for (IntervalTree.Interval<Integer> interval : all) {
+                if (interval.start() <= to && interval.end() >= from) {
+                    expected.add(interval);
+                }
+            }
+            assertEquals(expected, tree.overlapping(from, to));
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package alg;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class LongLongHashTableTest {
+
+    private LongLongHashTable table;
+
+    @BeforeEach
+    public void init() {
+        table = new LongLongHashTable(0, -1);
+    }
+
+    @Test
+    void addSameReplace() {
+        assertEquals(-1, table.add(10, 10));
+        assertEquals(10, table.add(10, 11));
+        assertEquals(11, table.get(10));
+        assertEquals(-1, table.get(12));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    void zeroKeyIsRegularKey() {
+        assertFalse(table.hasKey(0));
+        assertEquals(-1, table.add(0, 5));
+        assertTrue(table.hasKey(0));
+        assertEquals(5, table.get(0));
+        assertEquals(1, table.size());
+        assertEquals(5, table.remove(0));
+        assertFalse(table.hasKey(0));
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    void hugeExpectedSizeRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new LongLongHashTable(Integer.MAX_VALUE, 0));
+    }
+
+    @Test
+    public void randomOperationsMatchHashMap() {
+        Random random = new Random(17);
+        Map<Long, Long> expected = new HashMap<>();
+        for (int i = 0; i < 100000; i++) {
+            long key = random.nextInt(3000) * 0x100000000L;
+            if (random.nextInt(3) == 0) {
+                Long old = expected.remove(key);
+                assertEquals(old != null ? old : -1, table.remove(key));
+            } else {
+                Long old = expected.put(key, (long) i);
+                assertEquals(old != null ? old : -1, table.add(key, i));
+            }
+        }
+
+        assertEquals(expected.size(), table.size());
+        for (int i = 0; i < 3000; i++) {
+            long key = i * 0x100000000L;
+            assertEquals(expected.containsKey(key), table.hasKey(key));
+            assertEquals(expected.containsKey(key) ? expected.get(key) : -1, table.get(key));
+        }
+    }
+}
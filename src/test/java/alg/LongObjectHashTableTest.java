@@ -0,0 +1,64 @@
+package alg;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class LongObjectHashTableTest {
+
+    private LongObjectHashTable<String> table;
+
+    @BeforeEach
+    public void init() {
+        table = new LongObjectHashTable<>();
+    }
+
+    @Test
+    void addSameReplace() {
+        assertNull(table.add(10, "a"));
+        assertEquals("a", table.add(10, "b"));
+        assertEquals("b", table.get(10));
+        assertNull(table.get(12));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    void zeroKeyIsRegularKey() {
+        assertNull(table.add(0, "zero"));
+        assertTrue(table.hasKey(0));
+        assertEquals("zero", table.remove(0));
+        assertNull(table.remove(0));
+        assertEquals(0, table.size());
+    }
+
+    @Test
+    void hugeExpectedSizeRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new LongObjectHashTable<String>(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void randomOperationsMatchHashMap() {
+        Random random = new Random(19);
+        Map<Long, String> expected = new HashMap<>();
+        for (int i = 0; i < 100000; i++) {
+            long key = random.nextInt(3000) - 1500;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), table.remove(key));
+            } else {
+                assertEquals(expected.put(key, "v" + i), table.add(key, "v" + i));
+            }
+        }
+
+        assertEquals(expected.size(), table.size());
+        for (long key = -1500; key < 1500; key++) {
+            assertEquals(expected.containsKey(key), table.hasKey(key));
+            assertEquals(expected.get(key), table.get(key));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package alg;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+public class LongRBTreeTest {
+    LongRBTree<Object> tree;
+
+    @BeforeEach
+    public void init() {
+        tree = new LongRBTree<>(2);
+    }
+
+    @Test
+    public void newTreeIsEmpty() {
+        assertTrue(tree.isEmpty());
+        assertFalse(tree.keyIterator().hasNext());
+    }
+
+    @Test
+    public void excludeDuplicateAdds() {
+        tree.add(50L, "a");
+        tree.add(50L, "b");
+        tree.add(Long.valueOf(1), "c");
+        assertEquals(2, tree.size());
+        assertEquals("b", tree.get(50L));
+        assertNull(tree.get(2L));
+    }
+
+    @Test
+    public void keysAreOrderedAndContained() {
+        Random random = new Random(42);
+        TreeMap<Long, Object> expected = new TreeMap<>();
+        for (int i = 0; i < 5000; i++) {
+            long key = random.nextInt(10000) - 5000L;
+            tree.add(key, String.valueOf(i));
+            expected.put(key, String.valueOf(i));
+        }
+
+        assertEquals(expected.size(), tree.size());
+        List<Long> keys = new ArrayList<>();
+        for (PrimitiveIterator.OfLong it = tree.keyIterator(); it.hasNext(); ) {
+            keys.add(it.nextLong());
+        }
+        assertEquals(new ArrayList<>(expected.keySet()), keys);
+
+        for (long key = -5000; key < 5000; key++) {
+            assertEquals(expected.containsKey(key), tree.contains(key));
+            assertEquals(expected.get(key), tree.get(key));
+        }
+    }
+}
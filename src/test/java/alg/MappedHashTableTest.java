@@ -0,0 +1,112 @@
+package alg;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class MappedHashTableTest {
+
+    private Path file;
+
+    @BeforeEach
+    public void init() throws IOException {
+        file = Files.createTempFile("mapped-hash-table", ".bin");
+    }
+
+    @AfterEach
+    public void cleanup() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    void addSameReplace() throws IOException {
+        try (MappedHashTable table = MappedHashTable.create(file, 4, 8, 16)) {
+            assertNull(table.add(key(10), value(10)));
+            assertArrayEquals(value(10), table.add(key(10), value(11)));
+            assertArrayEquals(value(11), table.get(key(10)));
+            assertNull(table.get(key(12)));
+            assertFalse(table.hasKey(key(12)));
+            assertEquals(1, table.size());
+        }
+    }
+
+    @Test
+    void reopenKeepsEntries() throws IOException {
+        try (MappedHashTable table = MappedHashTable.create(file, 4, 8, 10000)) {
+            for (int i = 0; i < 10000; i++) {
+                table.add(key(i), value(i * 31L));
+            }
+        }
+
+        try (MappedHashTable table = MappedHashTable.open(file)) {
+            assertEquals(10000, table.size());
+            byte[] value = new byte[8];
+            for (int i = 0; i < 10000; i++) {
+                assertTrue(table.get(key(i), value));
+                assertArrayEquals(value(i * 31L), value);
+            }
+            assertFalse(table.hasKey(key(10000)));
+
+            table.add(key(10000), value(1));
+        }
+
+        try (MappedHashTable table = MappedHashTable.open(file)) {
+            assertEquals(10001, table.size());
+            assertArrayEquals(value(1), table.get(key(10000)));
+        }
+    }
+
+    @Test
+    void fullTableRejectsNewKeys() throws IOException {
+        try (MappedHashTable table = MappedHashTable.create(file, 4, 8, 6)) {
+            int i = 0;
+            try {
+                for (; i < 100; i++) {
+                    table.add(key(i), value(i));
+                }
+                fail("table has fixed capacity");
+            } catch (IllegalStateException expected) {
+                assertEquals(i, table.size());
+            }
+            // existing keys still can be updated
+            assertArrayEquals(value(0), table.add(key(0), value(5)));
+        }
+    }
+
+    @Test
+    void wrongWidthRejected() throws IOException {
+        try (MappedHashTable table = MappedHashTable.create(file, 4, 8, 6)) {
+            assertThrows(IllegalArgumentException.class, () -> table.add(new byte[3], value(1)));
+            assertThrows(IllegalArgumentException.class, () -> table.add(key(1), new byte[2]));
+        }
+    }
+
+    @Test
+    void hugeExpectedSizeRejected() {
+        assertThrows(IllegalArgumentException.class, () -> MappedHashTable.create(file, 4, 8, Integer.MAX_VALUE));
+        // capacity fits, region does not
+        assertThrows(IllegalArgumentException.class, () -> MappedHashTable.create(file, 4, 8, 1 << 29));
+    }
+
+    @Test
+    void openChecksHeader() throws IOException {
+        Files.write(file, new byte[128]);
+        assertThrows(IOException.class, () -> MappedHashTable.open(file));
+    }
+
+    private static byte[] key(int key) {
+        return ByteBuffer.allocate(4).putInt(key).array();
+    }
+
+    private static byte[] value(long value) {
+        return ByteBuffer.allocate(8).putLong(value).array();
+    }
+}
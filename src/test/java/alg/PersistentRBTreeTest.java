@@ -0,0 +1,87 @@
+package alg;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+public class PersistentRBTreeTest {
+    PersistentRBTree<Integer, String> empty;
+
+    @BeforeEach
+    public void init() {
+        empty = PersistentRBTree.empty(Comparator.<Integer>naturalOrder());
+    }
+
+    @Test
+    public void addKeepsPreviousVersion() {
+        PersistentRBTree<Integer, String> v1 = empty.add(10, "a").add(5, "b");
+        PersistentRBTree<Integer, String> v2 = v1.add(20, "c").add(5, "d");
+
+        assertEquals(0, empty.size());
+        assertEquals(2, v1.size());
+        assertEquals(3, v2.size());
+        assertFalse(v1.contains(20));
+        assertTrue(v2.contains(20));
+        assertEquals("b", v1.get(5));
+        assertEquals("d", v2.get(5));
+        assertNull(v2.get(6));
+        assertEquals(Arrays.asList(5, 10), new ArrayList<>(v1.keysSet()));
+        assertEquals(Arrays.asList(5, 10, 20), new ArrayList<>(v2.keysSet()));
+    }
+
+    @Test
+    public void addSharesUntouchedSubtree() {
+        PersistentRBTree<Integer, String> tree = empty;
+        for (int i = 0; i < 100; i++) {
+            tree = tree.add(i * 2, "v");
+        }
+        PersistentRBTree<Integer, String> next = tree.add(199, "v");
+
+        assertSame(tree.root().left, next.root().left);
+    }
+
+    @Test
+    public void randomAddsKeepRedBlackProperties() {
+        Random random = new Random(7);
+        TreeMap<Integer, String> expected = new TreeMap<>();
+        PersistentRBTree<Integer, String> tree = empty;
+        for (int i = 0; i < 3000; i++) {
+            int key = random.nextInt(2000);
+            tree = tree.add(key, "v" + i);
+            expected.put(key, "v" + i);
+        }
+
+        assertEquals(expected.size(), tree.size());
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(tree.keysSet()));
+        for (Integer key : expected.keySet()) {
+            assertEquals(expected.get(key), tree.get(key));
+        }
+        assertEquals(RBTree.Color.BLACK, tree.root().color);
+        blackHeight(tree.root());
+    }
+
+    private static int blackHeight(PersistentRBTree.Node<Integer, String> node) {
+        if (node == null) {
+            return 1;
+        }
+        if (node.color == RBTree.Color.RED) {
+            assertFalse(node.left != null && node.left.color == RBTree.Color.RED, "red node has red child");
+            assertFalse(node.right != null && node.right.color == RBTree.Color.RED, "red node has red child");
+        }
+        int left = blackHeight(node.left);
+        assertEquals(left, blackHeight(node.right), "black height");
+        return left + (node.color == RBTree.Color.BLACK ? 1 : 0);
+    }
+}
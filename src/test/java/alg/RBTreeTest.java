@@ -5,10 +5,21 @@ import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.TreeSet;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 public class RBTreeTest {
@@ -93,4 +104,308 @@ public class RBTreeTest {
         assertEquals(RBTree.Color.RED, tree.root.right.color, "right is RED");
         assertEquals(RBTree.Color.BLACK, tree.root.left.color, "left is BLACK");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void addAllSortedBuildsValidTree() {
+        for (int count = 0; count < 40; count++) {
+            Integer[] keys = new Integer[count];
+            Object[] values = new Object[count];
+            for (int i = 0; i < count; i++) {
+                keys[i] = i * 2;
+                values[i] = VALUE;
+            }
+
+            RBTree<Integer, Object> bulk = new RBTree<>(COMPARATOR);
+            bulk.addAllSorted(keys, values);
+
+            assertEquals(count, bulk.size());
+            assertEquals(Arrays.asList(keys), new ArrayList<>(bulk.keysSet()));
+            assertValid(bulk);
+        }
+    }
+
+    @Test
+    public void addAfterAddAllSorted() {
+        tree.addAllSorted(new Integer[]{10, 20, 30, 40, 50}, new Object[]{VALUE, VALUE, VALUE, VALUE, VALUE});
+        tree.add(25, VALUE);
+        tree.add(5, VALUE);
+        tree.add(30, VALUE);
+
+        assertEquals(7, tree.size());
+        assertTrue(tree.contains(25));
+        assertFalse(tree.contains(26));
+        assertValid(tree);
+    }
+
+    @Test
+    public void addAllSortedRejectsUnsortedKeys() {
+        assertThrows(IllegalArgumentException.class,
+                () -> tree.addAllSorted(new Integer[]{1, 3, 2}, new Object[]{VALUE, VALUE, VALUE}));
+        assertThrows(IllegalArgumentException.class,
+                () -> tree.addAllSorted(new Integer[]{1, 1}, new Object[]{VALUE, VALUE}));
+        assertEquals(0, tree.size());
+    }
+
+    @Test
+    public void addAllSortedRequiresEmptyTree() {
+        tree.add(1, VALUE);
+        assertThrows(IllegalStateException.class,
+                () -> tree.addAllSorted(new Integer[]{2}, new Object[]{VALUE}));
+    }
+
+    @Test
+    public void orderStatisticsFollowInsertions() {
+        RBTree<Integer, Object> stats = new RBTree<>(COMPARATOR, true);
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 2000; i++) {
+            int key = random.nextInt(5000);
+            stats.add(key, VALUE);
+            expected.add(key);
+        }
+        assertValid(stats);
+
+        List<Integer> sorted = new ArrayList<>(expected);
+        for (int i = 0; i < sorted.size(); i++) {
+            assertEquals(sorted.get(i), stats.select(i));
+            assertEquals(i, stats.rank(sorted.get(i)));
+        }
+        assertEquals(expected.headSet(2500).size(), stats.rank(2500));
+        assertEquals(expected.subSet(1000, true, 3000, true).size(), stats.countInRange(1000, 3000));
+        assertEquals(0, stats.countInRange(3000, 1000));
+    }
+
+    @Test
+    public void orderStatisticsAfterAddAllSorted() {
+        RBTree<Integer, Object> stats = new RBTree<>(COMPARATOR, true);
+        stats.addAllSorted(new Integer[]{10, 20, 30, 40, 50}, new Object[]{VALUE, VALUE, VALUE, VALUE, VALUE});
+        stats.add(35, VALUE);
+
+        assertEquals(Integer.valueOf(35), stats.select(3));
+        assertEquals(4, stats.rank(40));
+        assertEquals(3, stats.countInRange(20, 35));
+        assertValid(stats);
+    }
+
+    @Test
+    public void removeKeepsTreeValid() {
+        RBTree<Integer, Object> stats = new RBTree<>(COMPARATOR, true);
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(5);
+        for (int i = 0; i < 5000; i++) {
+            int key = random.nextInt(1000);
+            if (random.nextBoolean()) {
+                assertEquals(expected.remove(key) ? Integer.valueOf(key) : null, stats.remove(key));
+            } else {
+                stats.add(key, VALUE);
+                expected.add(key);
+            }
+            if (i % 100 == 0) {
+                assertValid(stats);
+            }
+        }
+        assertValid(stats);
+        assertEquals(expected.size(), stats.size());
+        assertEquals(new ArrayList<>(expected), toList(stats.keysSet().iterator()));
+        assertEquals(expected.headSet(500).size(), stats.rank(500));
+    }
+
+    @Test
+    public void appendAfterRemovingGreatest() {
+        for (int i = 0; i < 10; i++) {
+            tree.add(i, VALUE);
+        }
+        tree.remove(9);
+        tree.remove(8);
+        tree.add(20, VALUE);
+        tree.add(15, VALUE);
+        tree.add(30, VALUE);
+        assertValid(tree);
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 15, 20, 30), toList(tree.keysSet().iterator()));
+
+        for (int key : new int[]{0, 1, 2, 3, 4, 5, 6, 7, 15, 20, 30}) {
+            tree.remove(key);
+        }
+        assertTrue(tree.isEmpty());
+        tree.add(1, VALUE);
+        tree.add(2, VALUE);
+        assertEquals(Arrays.asList(1, 2), toList(tree.keysSet().iterator()));
+    }
+
+    @Test
+    public void orderStatisticsRequireAugmentedTree() {
+        tree.add(1, VALUE);
+        assertThrows(IllegalStateException.class, () -> tree.rank(1));
+    }
+
+    @Test
+    public void getFloorAndCeiling() {
+        tree.add(10, "ten");
+        tree.add(20, "twenty");
+        tree.add(30, "thirty");
+
+        assertEquals("twenty", tree.get(20));
+        assertNull(tree.get(25));
+        assertEquals(Integer.valueOf(20), tree.floor(25));
+        assertEquals(Integer.valueOf(20), tree.floor(20));
+        assertNull(tree.floor(5));
+        assertEquals(Integer.valueOf(30), tree.ceiling(25));
+        assertEquals(Integer.valueOf(10), tree.ceiling(10));
+        assertNull(tree.ceiling(31));
+    }
+
+    @Test
+    public void rangeIsInclusiveAndOrdered() {
+        for (int i = 0; i < 100; i += 5) {
+            tree.add(i, VALUE);
+        }
+
+        assertEquals(Arrays.asList(10, 15, 20), toList(tree.range(10, 20)));
+        assertEquals(Arrays.asList(15, 20), toList(tree.range(11, 24)));
+        assertEquals(Arrays.asList(0, 5), toList(tree.range(-10, 7)));
+        assertEquals(Arrays.asList(90, 95), toList(tree.range(88, 1000)));
+        assertEquals(Collections.emptyList(), toList(tree.range(11, 14)));
+        assertEquals(Collections.emptyList(), toList(tree.range(20, 10)));
+        assertEquals(Collections.emptyList(), toList(tree.range(100, 200)));
+    }
+
+    @Test
+    public void keysSpliteratorDrivesParallelStream() {
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            tree.add(i, VALUE);
+            expected.add(i);
+        }
+
+        Spliterator<Integer> spliterator = tree.keysSet().spliterator();
+        assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.SORTED | Spliterator.DISTINCT));
+        assertEquals(10000, spliterator.estimateSize());
+        assertTrue(spliterator.trySplit() != null);
+
+        assertEquals(expected, tree.keysSet().parallelStream().collect(Collectors.toList()));
+        assertEquals(49995000L, tree.keysSet().parallelStream().mapToLong(Integer::longValue).sum());
+    }
+
+    @Test
+    public void keysSpliteratorWithoutOrderStatisticsIsNotSubsized() {
+        RBTree<Integer, Object> plain = new RBTree<>(COMPARATOR);
+        Integer[] expected = new Integer[100000];
+        for (int i = 0; i < expected.length; i++) {
+            plain.add(i, VALUE);
+            expected[i] = i;
+        }
+
+        Spliterator<Integer> right = plain.keysSet().spliterator();
+        assertTrue(right.hasCharacteristics(Spliterator.SIZED));
+        assertFalse(right.hasCharacteristics(Spliterator.SUBSIZED));
+        Spliterator<Integer> left = right.trySplit();
+        assertFalse(left.hasCharacteristics(Spliterator.SIZED));
+        assertFalse(right.hasCharacteristics(Spliterator.SIZED));
+
+        // toArray presizes the result for SUBSIZED streams, so it fails on inexact halves
+        assertArrayEquals(expected, plain.keysSet().parallelStream().toArray(Integer[]::new));
+    }
+
+    @Test
+    public void keysSpliteratorSplitsAreExactWithOrderStatistics() {
+        RBTree<Integer, Object> stats = new RBTree<>(COMPARATOR, true);
+        for (int i = 0; i < 1000; i++) {
+            stats.add(i, VALUE);
+        }
+
+        Spliterator<Integer> right = stats.keysSet().spliterator();
+        Spliterator<Integer> left = right.trySplit();
+        Spliterator<Integer> middle = right.trySplit();
+
+        assertTrue(left.hasCharacteristics(Spliterator.SIZED));
+        assertTrue(middle.hasCharacteristics(Spliterator.SIZED));
+        assertEquals(left.estimateSize(), left.getExactSizeIfKnown());
+        long total = 0;
+        for (Spliterator<Integer> part : Arrays.asList(left, middle, right)) {
+            long estimate = part.estimateSize();
+            List<Integer> keys = new ArrayList<>();
+            part.forEachRemaining(keys::add);
+            assertEquals(estimate, keys.size());
+            total += estimate;
+        }
+        assertEquals(1000, total);
+    }
+
+    @Test
+    public void monotonicInsertsUseFinger() {
+        final int[] comparisons = new int[1];
+        RBTree<Integer, Object> counted = new RBTree<>((a, b) -> {
+            comparisons[0]++;
+            return a.compareTo(b);
+        });
+        for (int i = 0; i < 10000; i++) {
+            counted.add(i, VALUE);
+        }
+
+        assertTrue(comparisons[0] < 2 * 10000, "comparisons: " + comparisons[0]);
+        assertEquals(10000, counted.size());
+        assertValid(counted);
+    }
+
+    @Test
+    public void mixedInsertsAfterFinger() {
+        for (int i = 0; i < 100; i++) {
+            tree.add(i * 2, VALUE);
+        }
+        tree.add(51, VALUE);
+        tree.add(198, VALUE);
+        tree.add(500, VALUE);
+        tree.add(499, VALUE);
+        tree.add(501, VALUE);
+
+        assertEquals(104, tree.size());
+        assertEquals(Integer.valueOf(501), tree.floor(1000));
+        assertEquals(Arrays.asList(198, 499, 500, 501), toList(tree.range(198, 600)));
+        assertValid(tree);
+    }
+
+    private static <T> List<T> toList(Iterator<T> iterator) {
+        List<T> list = new ArrayList<>();
+        while (iterator.hasNext()) {
+            list.add(iterator.next());
+        }
+        return list;
+    }
+
+    /**
+     * Check red-black properties: black root, no red node with red child, same black height
+     * for all paths and consistent parent links.
+     */
+    static <K, V> void assertValid(RBTree<K, V> tree) {
+        if (tree.root != null) {
+            assertEquals(RBTree.Color.BLACK, tree.root.color, "root is BLACK");
+            assertEquals(null, tree.root.parent);
+        }
+        blackHeight(tree, tree.root);
+    }
+
+    private static <K, V> int blackHeight(RBTree<K, V> tree, RBTree.RBNode<K, V> node) {
+        if (node == null) {
+            return 1;
+        }
+        if (node.color == RBTree.Color.RED) {
+            assertFalse(node.left != null && node.left.color == RBTree.Color.RED, "red node has red child");
+            assertFalse(node.right != null && node.right.color == RBTree.Color.RED, "red node has red child");
+        }
+        if (node.left != null) {
+            assertTrue(node.left.parent == node, "parent link");
+        }
+        if (node.right != null) {
+            assertTrue(node.right.parent == node, "parent link");
+        }
+
+        int left = blackHeight(tree, node.left);
+        int right = blackHeight(tree, node.right);
+        assertEquals(left, right, "black height");
+        if (tree.augmented()) {
+            int count = 1 + (node.left != null ? node.left.count : 0) + (node.right != null ? node.right.count : 0);
+            assertEquals(count, node.count, "subtree size");
+        }
+        return left + (node.color == RBTree.Color.BLACK ? 1 : 0);
+    }
+}
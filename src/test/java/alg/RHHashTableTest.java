@@ -0,0 +1,76 @@
+package alg;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class RHHashTableTest {
+
+    private RHHashTable<Integer, Object> table;
+
+    @BeforeEach
+    public void init() {
+        table = new RHHashTable<>();
+    }
+
+    @Test
+    void addSameReplace() {
+        assertNull(table.add(10, 10));
+        assertEquals(10, table.add(10, 11));
+        assertEquals(11, table.get(10));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    public void addWithResize() {
+        for (int i = 0; i < 150; i++) {
+            table.add(i, 10);
+        }
+
+        assertEquals(150, table.size());
+        for (int i = 0; i < 150; i++) {
+            assertTrue(table.hasKey(i));
+        }
+        assertFalse(table.hasKey(150));
+    }
+
+    @Test
+    public void removeKeepsOtherKeysReachable() {
+        // keys with the same home bucket form one probe sequence
+        for (int i = 0; i < 8; i++) {
+            table.add(i * 64, i);
+        }
+
+        assertEquals(3, table.remove(192));
+        assertNull(table.remove(192));
+        assertEquals(7, table.size());
+        for (int i = 0; i < 8; i++) {
+            assertEquals(i != 3, table.hasKey(i * 64));
+        }
+    }
+
+    @Test
+    public void randomOperationsMatchHashMap() {
+        Random random = new Random(13);
+        Map<Integer, Object> expected = new HashMap<>();
+        for (int i = 0; i < 50000; i++) {
+            Integer key = random.nextInt(5000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), table.remove(key));
+            } else {
+                assertEquals(expected.put(key, i), table.add(key, i));
+            }
+        }
+
+        assertEquals(expected.size(), table.size());
+        for (int key = 0; key < 5000; key++) {
+            assertEquals(expected.get(key), table.get(key));
+        }
+    }
+}
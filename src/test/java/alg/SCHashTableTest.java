@@ -3,6 +3,16 @@ package alg;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 
@@ -55,4 +65,399 @@ public class SCHashTableTest {
         assertFalse(table.hasKey(10001));
         assertFalse(table.hasKey(50));
     }
+
+    @Test
+    public void incrementalResizeKeepsAllKeys() {
+        SCHashTable<Integer, Object> incremental = new SCHashTable<>(true);
+        for (int i = 0; i < 10000; i++) {
+            assertNull(incremental.add(i, i));
+            assertTrue(incremental.hasKey(i / 2));
+        }
+
+        assertEquals(10000, incremental.size());
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(incremental.hasKey(i));
+            assertEquals(i, incremental.add(i, -i));
+        }
+        assertFalse(incremental.hasKey(10000));
+        assertEquals(10000, incremental.size());
+    }
+
+    @Test
+    public void collidingComparableKeys() {
+        for (boolean incrementalResize : new boolean[]{false, true}) {
+            SCHashTable<Colliding, Object> colliding = new SCHashTable<>(incrementalResize);
+            for (int i = 0; i < 1000; i++) {
+                assertNull(colliding.add(new Colliding(i), i));
+                // spread keys let the table grow past treeify capacity
+                colliding.add(new Colliding(-i - 1, i), i);
+            }
+            assertEquals(7, colliding.add(new Colliding(7), -7));
+
+            assertEquals(2000, colliding.size());
+            for (int i = 0; i < 1000; i++) {
+                assertTrue(colliding.hasKey(new Colliding(i)));
+                assertTrue(colliding.hasKey(new Colliding(-i - 1, i)));
+            }
+            assertFalse(colliding.hasKey(new Colliding(1000)));
+        }
+    }
+
+    @Test
+    public void collidingKeysOfDifferentClasses() {
+        SCHashTable<Object, Object> mixed = new SCHashTable<>();
+        for (int i = 0; i < 200; i++) {
+            mixed.add(new Colliding(i), i);
+        }
+        mixed.add("other", 0);
+        mixed.add(new Object() {
+            @Override
+            public int hashCode() {
+                return 42;
+            }
+        }, 0);
+        for (int i = 200; i < 300; i++) {
+            mixed.add(new Colliding(i), i);
+        }
+
+        assertEquals(302, mixed.size());
+        for (int i = 0; i < 300; i++) {
+            assertTrue(mixed.hasKey(new Colliding(i)));
+        }
+        assertTrue(mixed.hasKey("other"));
+    }
+
+    @Test
+    public void collidingKeysWithCompareToInconsistentWithEquals() {
+        // presized past treeify capacity
+        SCHashTable<Object, Object> table = new SCHashTable<>(1000, 0.75f);
+        for (int i = 0; i < 50; i++) {
+            // keys of the same group compare as equal
+            assertNull(table.add(new Grouped(i, i / 10), i));
+        }
+        for (int i = 0; i < 50; i++) {
+            assertNull(table.add(new OtherComparable(i), i));
+        }
+
+        assertEquals(100, table.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i, table.get(new Grouped(i, i / 10)));
+            assertEquals(i, table.get(new OtherComparable(i)));
+        }
+        for (int i = 0; i < 50; i += 2) {
+            assertEquals(i, table.remove(new Grouped(i, i / 10)));
+        }
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i % 2 == 0 ? null : i, table.get(new Grouped(i, i / 10)));
+        }
+    }
+
+    @Test
+    public void getAndRemove() {
+        for (boolean incrementalResize : new boolean[]{false, true}) {
+            SCHashTable<Integer, Object> table = new SCHashTable<>(incrementalResize);
+            for (int i = 0; i < 1000; i++) {
+                table.add(i, i);
+            }
+            for (int i = 0; i < 1000; i += 2) {
+                assertEquals(i, table.remove(i));
+            }
+            assertNull(table.remove(0));
+            assertEquals(500, table.size());
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(i % 2 == 0 ? null : i, table.get(i));
+                assertEquals(i % 2 != 0, table.hasKey(i));
+            }
+        }
+    }
+
+    @Test
+    public void removeCollidingKeys() {
+        SCHashTable<Object, Object> colliding = new SCHashTable<>();
+        for (int i = 0; i < 100; i++) {
+            colliding.add(new Colliding(i), i);
+            colliding.add(new Colliding(-i - 1, i), i);
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, colliding.remove(new Colliding(i)));
+            assertNull(colliding.get(new Colliding(i)));
+            for (int j = i + 1; j < 100; j++) {
+                assertEquals(j, colliding.get(new Colliding(j)));
+            }
+        }
+        assertNull(colliding.remove("other"));
+        assertEquals(100, colliding.size());
+    }
+
+    @Test
+    public void statsAreRecordedWhenEnabled() {
+        table.add(1, 1);
+        assertEquals(0, table.stats().getAdds());
+
+        table.recordStats(true);
+        for (int i = 0; i < 1000; i++) {
+            table.add(i, i);
+        }
+        for (int i = 0; i < 500; i++) {
+            table.hasKey(i);
+            table.get(-i - 1);
+        }
+
+        SCHashTable.Stats stats = table.stats();
+        assertEquals(1000, stats.getAdds());
+        assertEquals(1000, stats.getLookups());
+        assertTrue(stats.getAverageLookupComparisons() > 0);
+        assertTrue(stats.getMaxAddComparisons() >= 1);
+        assertTrue(stats.getRehashes() > 0);
+        assertTrue(stats.getRehashNanos() >= stats.getMaxRehashNanos());
+        assertEquals(1000, stats.getSize());
+        assertTrue(stats.getLoadFactor() <= stats.getMaxLoadFactor());
+
+        int buckets = 0, nodes = 0;
+        int[] histogram = stats.getChainLengthHistogram();
+        for (int i = 0; i < histogram.length; i++) {
+            buckets += histogram[i];
+            nodes += i * histogram[i];
+        }
+        assertEquals(stats.getCapacity(), buckets);
+        assertEquals(1000, nodes);
+
+        table.recordStats(false);
+        table.hasKey(1);
+        assertEquals(0, table.stats().getLookups());
+    }
+
+    @Test
+    public void statsShowCollisions() {
+        SCHashTable<Colliding, Object> colliding = new SCHashTable<>();
+        colliding.recordStats(true);
+        for (int i = 0; i < 5; i++) {
+            colliding.add(new Colliding(i), i);
+        }
+        colliding.hasKey(new Colliding(100));
+
+        SCHashTable.Stats stats = colliding.stats();
+        assertEquals(1, stats.getChainLengthHistogram()[5]);
+        assertEquals(5, stats.getMaxLookupComparisons());
+        assertEquals(4, stats.getMaxAddComparisons());
+    }
+
+    @Test
+    public void statsMBean() throws Exception {
+        ObjectName name = new ObjectName("alg:type=SCHashTable,name=statsMBean");
+        table.recordStats(true);
+        table.registerStatsMBean(name);
+        try {
+            table.add(1, 1);
+            table.hasKey(1);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertEquals(1L, server.getAttribute(name, "Lookups"));
+            assertEquals(1, server.getAttribute(name, "Size"));
+        } finally {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        }
+    }
+
+    @Test
+    public void presizedTableDoesNotRehash() {
+        SCHashTable<Integer, Object> presized = new SCHashTable<>(10000, 0.5f);
+        presized.recordStats(true);
+        for (int i = 0; i < 10000; i++) {
+            presized.add(i, i);
+        }
+        assertEquals(0, presized.stats().getRehashes());
+        assertTrue(presized.stats().getMaxLoadFactor() == 0.5);
+        assertThrows(IllegalArgumentException.class, () -> new SCHashTable<>(10, 0));
+    }
+
+    @Test
+    public void addAllResizesOnce() {
+        for (boolean incrementalResize : new boolean[]{false, true}) {
+            SCHashTable<Integer, Object> table = new SCHashTable<>(incrementalResize);
+            for (int i = 0; i < 100; i++) {
+                table.add(i, i);
+            }
+            table.recordStats(true);
+            Map<Integer, Object> map = new HashMap<>();
+            for (int i = 50; i < 5000; i++) {
+                map.put(i, -i);
+            }
+            table.addAll(map);
+
+            assertEquals(1, table.stats().getRehashes());
+            assertEquals(5000, table.size());
+            for (int i = 0; i < 5000; i++) {
+                assertEquals(i < 50 ? i : -i, table.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void parallelAddAll() {
+        SCHashTable<Object, Object> table = new SCHashTable<>();
+        for (int i = 0; i < 1000; i++) {
+            table.add(i, i);
+            table.add(new Colliding(i), i);
+        }
+        Map<Object, Object> map = new HashMap<>();
+        for (int i = 500; i < 200000; i++) {
+            map.put(i, -i);
+        }
+        for (int i = 500; i < 1500; i++) {
+            map.put(new Colliding(i), -i);
+        }
+        table.addAll(map);
+
+        assertEquals(201500, table.size());
+        for (int i = 0; i < 200000; i++) {
+            assertEquals(i < 500 ? i : -i, table.get(i));
+        }
+        for (int i = 0; i < 1500; i++) {
+            assertEquals(i < 500 ? i : -i, table.get(new Colliding(i)));
+        }
+    }
+
+    @Test
+    public void iterationVisitsEveryMapping() {
+        for (boolean incrementalResize : new boolean[]{false, true}) {
+            SCHashTable<Object, Object> table = new SCHashTable<>(incrementalResize);
+            Map<Object, Object> expected = new HashMap<>();
+            // 1000 keys leave incremental resize in progress
+            for (int i = 0; i < 1000; i++) {
+                table.add(i, i);
+                expected.put(i, i);
+            }
+            for (int i = 0; i < 100; i++) {
+                table.add(new Colliding(i), -i);
+                expected.put(new Colliding(i), -i);
+            }
+
+            Map<Object, Object> visited = new HashMap<>();
+            table.forEach((k, v) -> assertNull(visited.put(k, v)));
+            assertEquals(expected, visited);
+
+            Map<Object, Object> iterated = new HashMap<>();
+            for (Map.Entry<Object, Object> entry : table.entrySet()) {
+                assertNull(iterated.put(entry.getKey(), entry.getValue()));
+            }
+            assertEquals(expected, iterated);
+            assertEquals(expected.keySet(), new HashSet<>(table.keysSet()));
+            assertEquals(expected.size(), table.keysSet().size());
+        }
+    }
+
+    @Test
+    public void parallelStreamOverKeys() {
+        SCHashTable<Integer, Object> table = new SCHashTable<>();
+        for (int i = 0; i < 100000; i++) {
+            table.add(i, i);
+        }
+        Spliterator<Integer> spliterator = table.keysSet().spliterator();
+        assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED));
+        assertEquals(100000, spliterator.getExactSizeIfKnown());
+        assertNotNull(spliterator.trySplit());
+
+        assertEquals(100000L * 99999 / 2, table.keysSet().parallelStream().mapToLong(Integer::longValue).sum());
+        assertEquals(100000, table.entrySet().parallelStream().filter(e -> e.getKey().equals(e.getValue())).count());
+    }
+
+    @Test
+    public void spliteratorSplitsAfterAdvance() {
+        SCHashTable<Integer, Object> table = new SCHashTable<>();
+        for (int i = 0; i < 10000; i++) {
+            table.add(i, i);
+        }
+        Spliterator<Integer> spliterator = table.keysSet().spliterator();
+        Set<Integer> seen = new HashSet<>();
+        assertTrue(spliterator.tryAdvance(seen::add));
+
+        Spliterator<Integer> suffix = spliterator.trySplit();
+        assertNotNull(suffix);
+        Spliterator<Integer> quarter = suffix.trySplit();
+        assertNotNull(quarter);
+        for (Spliterator<Integer> part : Arrays.asList(spliterator, suffix, quarter)) {
+            part.forEachRemaining(key -> assertTrue(seen.add(key)));
+        }
+        assertEquals(10000, seen.size());
+    }
+
+    /**
+     * Comparable key, all instances share the same hash code unless other is given.
+     */
+    private static final class Colliding implements Comparable<Colliding> {
+        private final int id;
+        private final int hash;
+
+        Colliding(int id) {
+            this(id, 42);
+        }
+
+        Colliding(int id, int hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+
+        @Override
+        public int compareTo(Colliding o) {
+            return Integer.compare(id, o.id);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Colliding && ((Colliding) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private static final class Grouped implements Comparable<Grouped> {
+        private final int id;
+        private final int group;
+
+        Grouped(int id, int group) {
+            this.id = id;
+            this.group = group;
+        }
+
+        @Override
+        public int compareTo(Grouped o) {
+            return Integer.compare(group, o.group);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Grouped && ((Grouped) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 42;
+        }
+    }
+
+    private static final class OtherComparable implements Comparable<Integer> {
+        private final int id;
+
+        OtherComparable(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Integer o) {
+            return Integer.compare(id, o);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof OtherComparable && ((OtherComparable) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 43;
+        }
+    }
 }
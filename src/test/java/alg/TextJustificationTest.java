@@ -0,0 +1,304 @@
+package alg;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class TextJustificationTest {
+
+    private final TextJustification justification = new TextJustification();
+
+    @Test
+    public void example() {
+        List<String> lines = justification.fullJustify(
+                new String[]{"This", "is", "an", "example", "of", "text", "justification."}, 16);
+        assertEquals(Arrays.asList("This is an", "example of text", "justification."), lines);
+    }
+
+    @Test
+    public void lastLineHasToFit() {
+        List<String> lines = justification.fullJustify(new String[]{"aaa", "bbb", "ccc"}, 7);
+        assertEquals(Arrays.asList("aaa bbb", "ccc"), lines);
+    }
+
+    @Test
+    public void overlongWordTakesWholeLine() {
+        List<String> lines = justification.fullJustify(new String[]{"a", "bbbbbbbbbb", "c", "d"}, 5);
+        assertEquals(Arrays.asList("a", "bbbbbbbbbb", "c d"), lines);
+    }
+
+    @Test
+    public void emptyInput() {
+        assertTrue(justification.fullJustify(new String[0], 10).isEmpty());
+    }
+
+    @Test
+    public void matchesExhaustiveSearch() {
+        Random random = new Random(11);
+        for (int round = 0; round < 200; round++) {
+            int[] lengths = randomLengths(random, 1 + random.nextInt(12), 8);
+            int width = 6 + random.nextInt(15);
+            TextJustification.Justify justify = new TextJustification.Justify(lengths);
+            TextJustification.calcJustify(justify, width);
+            assertEquals(exhaustive(justify, width, 0), justify.mem[0]);
+            assertEquals(justify.mem[0], costOf(justify, width));
+        }
+    }
+
+    @Test
+    public void longDocument() {
+        Random random = new Random(1);
+        String[] words = new String[100000];
+        for (int i = 0; i < words.length; i++) {
+            char[] word = new char[1 + random.nextInt(10)];
+            Arrays.fill(word, 'x');
+            words[i] = new String(word);
+        }
+        List<String> lines = justification.fullJustify(words, 80);
+        int count = 0;
+        for (String line : lines) {
+            assertTrue(line.length() <= 80);
+            count += line.split(" ").length;
+        }
+        assertEquals(words.length, count);
+    }
+
+    @Test
+    public void monotoneQueueMatchesDynamic() {
+        Random random = new Random(23);
+        for (int round = 0; round < 2000; round++) {
+            int[] lengths = randomLengths(random, random.nextInt(60), 12);
+            int width = 1 + random.nextInt(30);
+            TextJustification.Justify dynamic = new TextJustification.Justify(lengths);
+            TextJustification.Justify monotone = new TextJustification.Justify(lengths);
+            TextJustification.calcJustify(dynamic, width, TextJustification.Solver.DYNAMIC);
+            TextJustification.calcJustify(monotone, width, TextJustification.Solver.MONOTONE_QUEUE);
+            assertArrayEquals(dynamic.mem, monotone.mem);
+            assertArrayEquals(dynamic.parentPointers, monotone.parentPointers);
+        }
+    }
+
+    @Test
+    public void monotoneQueueOnWideColumns() {
+        Random random = new Random(29);
+        int[] lengths = randomLengths(random, 20000, 10);
+        TextJustification.Justify dynamic = new TextJustification.Justify(lengths);
+        TextJustification.Justify monotone = new TextJustification.Justify(lengths);
+        TextJustification.calcJustify(dynamic, 2000, TextJustification.Solver.DYNAMIC);
+        TextJustification.calcJustify(monotone, 2000, TextJustification.Solver.MONOTONE_QUEUE);
+        assertArrayEquals(dynamic.parentPointers, monotone.parentPointers);
+
+        List<String> lines = new TextJustification(TextJustification.Solver.MONOTONE_QUEUE).fullJustify(
+                new String[]{"This", "is", "an", "example", "of", "text", "justification."}, 16);
+        assertEquals(Arrays.asList("This is an", "example of text", "justification."), lines);
+    }
+
+    @Test
+    public void widestLines() {
+        Random random = new Random(41);
+        int width = TextJustification.MAX_WIDTH;
+        int[] lengths = randomLengths(random, 2000, width / 2);
+        TextJustification.Justify dynamic = new TextJustification.Justify(lengths);
+        TextJustification.Justify monotone = new TextJustification.Justify(lengths);
+        TextJustification.calcJustify(dynamic, width, TextJustification.Solver.DYNAMIC);
+        TextJustification.calcJustify(monotone, width, TextJustification.Solver.MONOTONE_QUEUE);
+        assertArrayEquals(dynamic.mem, monotone.mem);
+        assertEquals(costOf(dynamic, width), dynamic.mem[0]);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> justification.fullJustify(new String[]{"a"}, TextJustification.MAX_WIDTH + 1));
+    }
+
+    @Test
+    public void costSaturatesInsteadOfOverflow() {
+        int width = TextJustification.MAX_WIDTH;
+        // each word takes its own line with slack of half the width
+        int[] lengths = new int[1 << 18];
+        Arrays.fill(lengths, width / 2 + 1);
+        for (TextJustification.Solver solver : TextJustification.Solver.values()) {
+            TextJustification.Justify justify = new TextJustification.Justify(lengths);
+            TextJustification.calcJustify(justify, width, solver);
+            for (int i = 0; i < lengths.length; i++) {
+                assertTrue(justify.mem[i] >= 0);
+                assertEquals(i + 1, justify.parentPointers[i]);
+            }
+            assertEquals(Long.MAX_VALUE / 2, justify.mem[0]);
+        }
+    }
+
+    @Test
+    public void streamingWritesPaddedLines() throws IOException {
+        StringWriter out = new StringWriter();
+        justification.justify(new StringReader("This is an example\nof text   justification.\n\n\n  second\tparagraph  \n"),
+                out, 16);
+        assertEquals("This    is    an\n"
+                + "example  of text\n"
+                + "justification.  \n"
+                + "\n"
+                + "second paragraph\n", out.toString());
+    }
+
+    @Test
+    public void streamingOverChannels() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] input = "über alles\n\nzwei wörter".getBytes(StandardCharsets.UTF_8);
+        justification.justify(Channels.newChannel(new ByteArrayInputStream(input)), Channels.newChannel(bytes),
+                5, StandardCharsets.UTF_8);
+        assertEquals("über \nalles\n\nzwei \nwörter\n", new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void streamingHugeParagraphByWindows() throws IOException {
+        Random random = new Random(5);
+        StringBuilder text = new StringBuilder();
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 3 * TextJustification.WINDOW_WORDS + 17; i++) {
+            char[] word = new char[1 + random.nextInt(8)];
+            Arrays.fill(word, (char) ('a' + i % 26));
+            words.add(new String(word));
+            text.append(word).append(random.nextInt(10) == 0 ? "\n" : " ");
+        }
+
+        StringWriter out = new StringWriter();
+        new TextJustification(TextJustification.Solver.MONOTONE_QUEUE).justify(new StringReader(text.toString()), out, 40);
+        String[] lines = out.toString().split("\n");
+        List<String> written = new ArrayList<>();
+        for (String line : lines) {
+            assertEquals(40, line.length());
+            assertFalse(line.isEmpty() || line.startsWith(" "));
+            written.addAll(Arrays.asList(line.trim().split(" +")));
+        }
+        assertEquals(words, written);
+    }
+
+    @Test
+    public void mappedFileMatchesReader() throws IOException {
+        Random random = new Random(17);
+        String[] vocabulary = {"über", "straße", "a", "justification", "wörter", "x", "漢字", "text", "\uD83D\uDE00", "a\uD83D\uDE00b"};
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 2 * TextJustification.WINDOW_WORDS + 5; i++) {
+            text.append(vocabulary[random.nextInt(vocabulary.length)]);
+            int separator = random.nextInt(50);
+            text.append(separator == 0 ? "\n\n" : separator < 5 ? "\n" : separator < 8 ? " \t " : " ");
+        }
+
+        Path file = Files.createTempFile("text-justification", ".txt");
+        try {
+            Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            justification.justify(file, Channels.newChannel(bytes), 20);
+
+            StringWriter expected = new StringWriter();
+            justification.justify(new StringReader(text.toString()), expected, 20);
+            assertEquals(expected.toString(), new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void mappedEmptyFile() throws IOException {
+        Path file = Files.createTempFile("text-justification", ".txt");
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            justification.justify(file, Channels.newChannel(bytes), 10);
+            assertEquals(0, bytes.size());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void batchKeepsOrder() {
+        Random random = new Random(31);
+        List<TextJustification.Paragraph> paragraphs = new ArrayList<>();
+        List<List<String>> expected = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            String[] words = new String[random.nextInt(i % 100 == 0 ? 2000 : 30)];
+            for (int k = 0; k < words.length; k++) {
+                words[k] = Integer.toString(random.nextInt(1 << (1 + random.nextInt(30))));
+            }
+            int width = 10 + random.nextInt(40);
+            paragraphs.add(new TextJustification.Paragraph(words, width));
+            expected.add(justification.fullJustify(words, width));
+        }
+
+        assertEquals(expected, justification.fullJustifyAll(paragraphs.stream()));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            assertEquals(expected, justification.fullJustifyAll(paragraphs, executor));
+        } finally {
+            executor.shutdown();
+        }
+        assertThrows(IllegalArgumentException.class, () -> justification.fullJustifyAll(
+                Collections.singletonList(new TextJustification.Paragraph(new String[]{"a"}, 0)), Runnable::run));
+    }
+
+    @Test
+    public void batchWithParagraphLargerThanScratch() {
+        Random random = new Random(37);
+        List<TextJustification.Paragraph> paragraphs = new ArrayList<>();
+        List<List<String>> expected = new ArrayList<>();
+        for (int count : new int[]{10, TextJustification.MAX_SCRATCH_WORDS + 1, 20}) {
+            String[] words = new String[count];
+            for (int k = 0; k < count; k++) {
+                words[k] = Integer.toString(random.nextInt(100000));
+            }
+            paragraphs.add(new TextJustification.Paragraph(words, 30));
+            expected.add(justification.fullJustify(words, 30));
+        }
+
+        assertEquals(expected, justification.fullJustifyAll(paragraphs, Runnable::run));
+    }
+
+    static int[] randomLengths(Random random, int count, int maxLength) {
+        int[] lengths = new int[count];
+        for (int i = 0; i < count; i++) {
+            lengths[i] = 1 + random.nextInt(maxLength);
+        }
+        return lengths;
+    }
+
+    /*
+     * Cost of the solution given by parent pointers.
+     */
+    static long costOf(TextJustification.Justify justify, int width) {
+        long cost = 0;
+        for (int from = 0; from < justify.count; from = justify.parentPointers[from]) {
+            cost += TextJustification.badness(justify, from, justify.parentPointers[from], width);
+        }
+        return cost;
+    }
+
+    private static long exhaustive(TextJustification.Justify justify, int width, int from) {
+        if (from == justify.count) {
+            return 0;
+        }
+        long best = Long.MAX_VALUE;
+        for (int to = from + 1; to <= justify.count; to++) {
+            long badness = TextJustification.badness(justify, from, to, width);
+            if (badness >= 0) {
+                best = Math.min(best, badness + exhaustive(justify, width, to));
+            }
+        }
+        return best;
+    }
+}